@@ -0,0 +1,99 @@
+package logic;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Small benchmark harness in the manner of JMH: each benchmark is run during warmup iterations whose results are discarded,
+ * then during measured iterations of a fixed duration. The time and the memory allocated by the thread are reported per operation,
+ * as the mean over the measured iterations with the error of a 99.9% confidence interval.
+ * The number and the duration of the iterations are set with -Dbench.warmup, -Dbench.iterations and -Dbench.iterationMs.
+ */
+final class Benchmark {
+
+	/**
+	 * operation measured by a benchmark
+	 */
+	interface Operation {
+		/**
+		 * run the operation once
+		 * @param i number of the invocation, used to go through the inputs of the benchmark
+		 * @return a value computed from the result, so that the operation cannot be removed by the compiler
+		 */
+		long run(int i);
+	}
+
+	static int warmup = Integer.getInteger("bench.warmup", 3);
+	static int iterations = Integer.getInteger("bench.iterations", 5);
+	static long iteration_ms = Long.getLong("bench.iterationMs", 1000);
+
+	// results of the operations end here, read once per iteration
+	private static volatile long sink;
+
+	private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+	/**
+	 * run a benchmark and print its results
+	 * @param name name of the benchmark
+	 * @param operation the measured operation
+	 */
+	static void run(String name, Operation operation) {
+		int invocation = 0;
+		for(int w = 0; w < warmup; w++) {
+			invocation = iterate(operation, invocation, null);
+		}
+		double[] times = new double[iterations], bytes = new double[iterations];
+		for(int it = 0; it < iterations; it++) {
+			double[] result = new double[2];
+			invocation = iterate(operation, invocation, result);
+			times[it] = result[0];
+			bytes[it] = result[1];
+		}
+		System.out.println(String.format("%-32s %12.1f +- %8.1f ns/op %12.0f B/op", name, mean(times), error(times), mean(bytes)));
+	}
+
+	// one iteration, result receives the time and the bytes allocated per operation
+	private static int iterate(Operation operation, int invocation, double[] result) {
+		long thread = Thread.currentThread().getId();
+		long blackhole = 0, operations = 0;
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime(), end = start + iteration_ms * 1000000, now = start;
+		// the clock is read after batches of operations, whose size doubles as long as a batch takes less than 10 microseconds
+		int batch = 1;
+		do {
+			long batchStart = now;
+			for(int b = 0; b < batch; b++) {
+				blackhole += operation.run(invocation++);
+			}
+			operations += batch;
+			now = System.nanoTime();
+			if(now - batchStart < 10000 && batch < (1 << 20))
+				batch <<= 1;
+		} while(now < end);
+		allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+		sink = blackhole;
+		if(result != null) {
+			result[0] = (double)(now - start) / operations;
+			result[1] = (double)allocated / operations;
+		}
+		return invocation;
+	}
+
+	private static double mean(double[] values) {
+		double sum = 0;
+		for(double value: values) {
+			sum += value;
+		}
+		return sum / values.length;
+	}
+
+	// half width of the confidence interval of the mean, with the quantile of the normal law
+	private static double error(double[] values) {
+		if(values.length < 2)
+			return 0;
+		double mean = mean(values), variance = 0;
+		for(double value: values) {
+			variance += (value - mean) * (value - mean);
+		}
+		return 3.29 * Math.sqrt(variance / (values.length - 1) / values.length);
+	}
+}
@@ -0,0 +1,134 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks of the belief states and of the search on states recorded from each level.
+ * The states are recorded by playing headless games with a seeded walk of Pacman (he goes on and only turns back in dead ends)
+ * and seeded ghosts, so that the same states are measured from one run to the next.
+ * Usage, from the root of the project: java -cp bin logic.Benchmarks [regular expression selecting the benchmarks]
+ */
+public class Benchmarks {
+
+	static final int recorded_moves = Integer.getInteger("bench.moves", 300); // length of the recorded games
+	static final int record_every = 5; // a state is kept every record_every moves
+	static final long seed = 0;
+
+	private static final String[] ACTIONS = {PacManLauncher.UP, PacManLauncher.DOWN, PacManLauncher.LEFT, PacManLauncher.RIGHT};
+
+	/**
+	 * record the belief states given to the AI during a game
+	 * @param level the level of the game
+	 * @return the belief states, one every record_every moves
+	 */
+	static ArrayList<BeliefState> record(int level) {
+		HeadlessGame game = new HeadlessGame(level, seed, false);
+		Random random = new Random(seed);
+		ArrayList<BeliefState> states = new ArrayList<BeliefState>();
+		String previous = PacManLauncher.LEFT;
+		while(!game.isOver() && game.getMoves() < recorded_moves) {
+			BeliefState state = game.getBeliefState();
+			if(game.getMoves() % record_every == 0)
+				states.add(state);
+			Position pacman = state.getPacmanPosition();
+			ArrayList<String> actions = new ArrayList<String>(), turnbacks = new ArrayList<String>();
+			for(String action: ACTIONS) {
+				int[] step = Benchmarks.step(action);
+				int x = pacman.x + step[0], y = pacman.y + step[1];
+				if(x < 0 || y < 0 || x >= state.getMapSize() || y >= state.getMapSize() || state.isWall(x, y))
+					continue;
+				if(AI.opposite_direction(action, previous.charAt(0)))
+					turnbacks.add(action);
+				else
+					actions.add(action);
+			}
+			if(actions.isEmpty())
+				actions = turnbacks;
+			previous = actions.get(random.nextInt(actions.size()));
+			game.step(previous);
+		}
+		return states;
+	}
+
+	// move of Pacman of an action, in rows and columns
+	static int[] step(String action) {
+		switch(action) {
+		case PacManLauncher.UP: return new int[] {-1, 0};
+		case PacManLauncher.DOWN: return new int[] {1, 0};
+		case PacManLauncher.LEFT: return new int[] {0, -1};
+		default: return new int[] {0, 1};
+		}
+	}
+
+	public static void main(String[] args) {
+		Pattern filter = Pattern.compile(args.length > 0 ? args[0] : ".*");
+		System.out.println(String.format("%d warmup and %d measured iterations of %d ms", Benchmark.warmup, Benchmark.iterations, Benchmark.iteration_ms));
+		for(int level = 1; level <= PacManLauncher.NBR_LVL; level++) {
+			final ArrayList<BeliefState> states = Benchmarks.record(level);
+			final int n = states.size();
+			// pairs of open squares of the level for isVisible
+			BeliefState first = states.get(0);
+			Random random = new Random(seed);
+			final int[] squares = new int[1024 * 4];
+			for(int i = 0; i < squares.length; i += 2) {
+				do {
+					squares[i] = random.nextInt(first.getMapSize());
+					squares[i + 1] = random.nextInt(first.getMapSize());
+				} while(first.isWall(squares[i], squares[i + 1]));
+			}
+			final SearchContext context = new SearchContext();
+			String suffix = " map" + level;
+			if(filter.matcher("extendsBeliefState" + suffix).find())
+				Benchmark.run("extendsBeliefState" + suffix, i -> states.get(i % n).extendsBeliefState().size());
+			if(filter.matcher("copy" + suffix).find())
+				Benchmark.run("copy" + suffix, i -> new BeliefState(states.get(i % n), false).getHashKey());
+			if(filter.matcher("compareTo" + suffix).find())
+				Benchmark.run("compareTo" + suffix, i -> states.get(i % n).compareTo(states.get((i + 1) % n)));
+			// distance read on a fresh child of a recorded state, built as the search does (a copy followed by a move of Pacman),
+			// so that the repair of the field of the gums of its parent is measured when Pacman eats a gum
+			final ArrayList<BeliefState> parents = new ArrayList<BeliefState>();
+			final ArrayList<String> moves = new ArrayList<String>();
+			for(BeliefState state: states) {
+				state.distanceMinToGum(); // the field of the parent is known, as in the search
+				for(String action: ACTIONS) {
+					int[] step = Benchmarks.step(action);
+					Position pacman = state.getPacmanPosition();
+					int x = pacman.x + step[0], y = pacman.y + step[1];
+					if(x >= 0 && y >= 0 && x < state.getMapSize() && y < state.getMapSize() && !state.isWall(x, y)) {
+						parents.add(state);
+						moves.add(action);
+					}
+				}
+			}
+			final int m = parents.size();
+			if(filter.matcher("distanceMinToGum" + suffix).find())
+				Benchmark.run("distanceMinToGum" + suffix, i -> {
+					BeliefState parent = parents.get(i % m);
+					int[] step = Benchmarks.step(moves.get(i % m));
+					Position pacman = parent.getPacmanPosition();
+					BeliefState child = parent.move(step[0], step[1], parent.getMap(pacman.x + step[0], pacman.y + step[1]), moves.get(i % m).charAt(0));
+					return child.distanceMinToGum();
+				});
+			if(filter.matcher("isVisible" + suffix).find())
+				Benchmark.run("isVisible" + suffix, i -> {
+					int k = (i << 2) & (squares.length - 1);
+					return first.isVisible(squares[k], squares[k + 1], squares[k + 2], squares[k + 3]) ? 1 : 0;
+				});
+			if(filter.matcher("heuristic" + suffix).find())
+				Benchmark.run("heuristic" + suffix, i -> Float.floatToIntBits(AI.heuristic(states.get(i % n), states.get(i % n))));
+			if(filter.matcher("upperBound" + suffix).find())
+				Benchmark.run("upperBound" + suffix, i -> Float.floatToIntBits(AI.upper_bound(states.get(i % n), AI.maxdepth)));
+			if(filter.matcher("findNextMove" + suffix).find())
+				Benchmark.run("findNextMove" + suffix, i -> AI.findNextMove(states.get(i % n), context).hashCode());
+			// the same search with the Star1 pruning of its chance nodes, which is off by default, to measure what the pruning saves
+			if(filter.matcher("findNextMovePruned" + suffix).find()) {
+				final SearchContext prunedContext = new SearchContext();
+				AI.star1_pruning = true;
+				Benchmark.run("findNextMovePruned" + suffix, i -> AI.findNextMove(states.get(i % n), prunedContext).hashCode());
+				AI.star1_pruning = false;
+			}
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package data;
+import java.util.Arrays;
+
+
+/**
+ * Cette classe donne les paires de cases qui se voient : deux cases se voient si elles sont sur la même ligne (ou la même colonne)
+ * et qu'aucun mur ne les sépare.
+ * Pour chaque case, on garde la première et la dernière case du segment de ligne et du segment de colonne sans mur qui la contiennent,
+ * ce qui permet de répondre en temps constant sans allouer d'objet.
+ *
+ * @inv une case ouverte appartient à ses deux segments
+ */
+public class LineOfSight {
+
+	/** Le nombre de case de la map */
+	private final int nbCases;
+	/** Pour chaque case ouverte, la première et la dernière colonne de son segment de ligne */
+	private final int[] rowFirst, rowLast;
+	/** Pour chaque case ouverte, la première et la dernière ligne de son segment de colonne */
+	private final int[] columnFirst, columnLast;
+
+	/**
+	 * Constructeur d'une map dont toutes les cases sont des murs
+	 *
+	 * @param nbCases le nombre de lignes (et de colonnes) de la map
+	 */
+	public LineOfSight(int nbCases) {
+		this.nbCases = nbCases;
+		this.rowFirst = new int[nbCases * nbCases];
+		this.rowLast = new int[nbCases * nbCases];
+		this.columnFirst = new int[nbCases * nbCases];
+		this.columnLast = new int[nbCases * nbCases];
+		Arrays.fill(this.rowLast, -1);
+		Arrays.fill(this.columnLast, -1);
+	}
+
+	/**
+	 * Ouvre une case, les cases doivent être ouvertes ligne par ligne et de gauche à droite
+	 *
+	 * @param i la ligne de la case
+	 * @param j la colonne de la case
+	 */
+	public void open(int i, int j) {
+		int cell = i * this.nbCases + j;
+		this.rowFirst[cell] = j > 0 && this.isOpen(i, j - 1) ? this.rowFirst[cell - 1] : j;
+		for(int k = this.rowFirst[cell]; k <= j; k++) {
+			this.rowLast[i * this.nbCases + k] = j;
+		}
+		this.columnFirst[cell] = i > 0 && this.isOpen(i - 1, j) ? this.columnFirst[cell - this.nbCases] : i;
+		for(int k = this.columnFirst[cell]; k <= i; k++) {
+			this.columnLast[k * this.nbCases + j] = i;
+		}
+	}
+
+	private boolean isOpen(int i, int j) {
+		return this.rowLast[i * this.nbCases + j] >= 0;
+	}
+
+	/**
+	 * Indique si deux cases se voient
+	 *
+	 * @param row1 la ligne de la première case
+	 * @param column1 la colonne de la première case
+	 * @param row2 la ligne de la seconde case
+	 * @param column2 la colonne de la seconde case
+	 * @return vrai si les deux cases sont ouvertes et se voient
+	 */
+	public boolean isVisible(int row1, int column1, int row2, int column2) {
+		if(row1 < 0 || column1 < 0 || row1 >= this.nbCases || column1 >= this.nbCases)
+			return false;
+		int cell = row1 * this.nbCases + column1;
+		if(row1 == row2)
+			return this.rowFirst[cell] <= column2 && column2 <= this.rowLast[cell];
+		if(column1 == column2)
+			return this.columnFirst[cell] <= row2 && row2 <= this.columnLast[cell];
+		return false;
+	}
+}
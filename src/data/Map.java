@@ -1,12 +1,12 @@
 package data;
 import java.io.*;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Iterator;
 
 import logic.PacManLauncher;
 import logic.Pacman;
 import logic.BeliefState;
+import logic.Level;
 import view.*;
 
 
@@ -41,8 +41,12 @@ public class Map {
 	/** La position sur la map de chaque fantôme en début de niveau : Un liste de couple (x,y) */
 	private ArrayList<int[]> ghosts;
 	/** Paires cases visibles */
-	private HashSet<String> visible;
+	private LineOfSight lineOfSight;
+	/** La topologie du niveau, partagée par tous les états de croyance de la partie */
+	private Level level;
 	private PacManLauncher pml;
+	/** Le score et le nombre de vies de pacman au début du niveau */
+	private int score, life;
 	private BeliefState state;
 	private ArrayList<BeliefState> visibleBeliefState;
 	private ArrayList<int[]> gamePositions;
@@ -54,7 +58,25 @@ public class Map {
 	 * @pre mapNumber > 0
 	 */
 	public Map(int mapNumber, PacManLauncher pml) {
+		this(mapNumber, pml, pml.getPacman() != null? pml.getPacman().getScore(): 0, pml.getPacman() != null? pml.getPacman().getLife(): Pacman.LIFE_START);
+	}
+
+	/**
+	 * Constructeur de la classe Map sans lanceur, pour jouer sans affichage
+	 *
+	 * @param mapNumber le numéro de la map a charger
+	 * @param score le score de pacman au début du niveau
+	 * @param life le nombre de vies de pacman au début du niveau
+	 * @pre mapNumber > 0
+	 */
+	public Map(int mapNumber, int score, int life) {
+		this(mapNumber, null, score, life);
+	}
+
+	private Map(int mapNumber, PacManLauncher pml, int score, int life) {
 		this.pml = pml;
+		this.score = score;
+		this.life = life;
 		assert mapNumber > 0 : "Precondition non respectée : numéro de la map négatif";
 		this.mapFile = "./doc/map"+ mapNumber +".map";
 		this.nbrGomme = 0;
@@ -106,8 +128,9 @@ public class Map {
 					this.tailleCase = this.WIDTH / this.nbCases;
 					this.couleurMur = param[1];
 					this.theMap = new MapGenerate(this.nbCases);
-					this.visible = new HashSet<String>();
-					this.state = new BeliefState(this.nbCases, this.pml.getPacman() != null? this.pml.getPacman().getScore(): 0, this.pml.getPacman() != null? this.pml.getPacman().getLife(): Pacman.LIFE_START);
+					this.lineOfSight = new LineOfSight(this.nbCases);
+					this.level = new Level(this.nbCases);
+					this.state = new BeliefState(this.level, this.score, this.life);
 				}
 				else {
 					int j = 0;                   // La colonne de la map
@@ -127,38 +150,20 @@ public class Map {
 						case "." :
 							this.theMap.setFigure(i,j,new Gomme(this.tailleCase, tmpx, tmpy, false));
 							this.nbrGomme += 1;
-							this.visible.add(i+","+j+";"+i+","+j);
-							for(int k = i - 1; k > -1 && this.visible.contains(k+","+j+";"+(i-1)+","+j); k--) {
-								this.visible.add(k+","+j+";"+i+","+j);
-							}
-							for(int k = j - 1; k > -1 && this.visible.contains(i+","+k+";"+i+","+(j-1)); k--) {
-								this.visible.add(i+","+k+";"+i+","+j);
-							}
+							this.lineOfSight.open(i, j);
 							int [] pos1 = {i,j};
 							this.gamePositions.add(pos1);
 							break;
 						case "*" :
 							this.theMap.setFigure(i,j,new Gomme(this.tailleCase, tmpx, tmpy, true));
 							this.nbrGomme += 1;
-							this.visible.add(i+","+j+";"+i+","+j);
-							for(int k = i - 1; k > -1 && this.visible.contains(k+","+j+";"+(i-1)+","+j); k--) {
-								this.visible.add(k+","+j+";"+i+","+j);
-							}
-							for(int k = j - 1; k > -1 && this.visible.contains(i+","+k+";"+i+","+(j-1)); k--) {
-								this.visible.add(i+","+k+";"+i+","+j);
-							}
+							this.lineOfSight.open(i, j);
 							int [] pos2 = {i,j};
 							this.gamePositions.add(pos2);
 							break;
 						case "O" :
 							this.theMap.setFigure(i,j,new Gomme(this.tailleCase, tmpx, tmpy));
-							this.visible.add(i+","+j+";"+i+","+j);
-							for(int k = i - 1; k > -1 && this.visible.contains(k+","+j+";"+(i-1)+","+j); k--) {
-								this.visible.add(k+","+j+";"+i+","+j);
-							}
-							for(int k = j - 1; k > -1 && this.visible.contains(i+","+k+";"+i+","+(j-1)); k--) {
-								this.visible.add(i+","+k+";"+i+","+j);
-							}
+							this.lineOfSight.open(i, j);
 							int [] pos3 = {i,j};
 							this.gamePositions.add(pos3);
 							break;
@@ -166,13 +171,7 @@ public class Map {
 							this.theMap.setFigure(i,j,new Gomme(this.tailleCase, tmpx, tmpy));
 							this.pacmanX = tmpx;
 							this.pacmanY = tmpy;
-							this.visible.add(i+","+j+";"+i+","+j);
-							for(int k = i - 1; k > -1 && this.visible.contains(k+","+j+";"+(i-1)+","+j); k--) {
-								this.visible.add(k+","+j+";"+i+","+j);
-							}
-							for(int k = j - 1; k > -1 && this.visible.contains(i+","+k+";"+i+","+(j-1)); k--) {
-								this.visible.add(i+","+k+";"+i+","+j);
-							}
+							this.lineOfSight.open(i, j);
 							int [] pos4 = {i,j};
 							this.gamePositions.add(pos4);
 							break;
@@ -182,13 +181,7 @@ public class Map {
 							posGhost[0] = tmpx;
 							posGhost[1] = tmpy;
 							this.ghosts.add(posGhost);
-							this.visible.add(i+","+j+";"+i+","+j);
-							for(int k = i - 1; k > -1 && this.visible.contains(k+","+j+";"+(i-1)+","+j); k--) {
-								this.visible.add(k+","+j+";"+i+","+j);
-							}
-							for(int k = j - 1; k > -1 && this.visible.contains(i+","+k+";"+i+","+(j-1)); k--) {
-								this.visible.add(i+","+k+";"+i+","+j);
-							}
+							this.lineOfSight.open(i, j);
 							int [] pos5 = {i,j};
 							this.gamePositions.add(pos5);
 							break;
@@ -210,7 +203,7 @@ public class Map {
 		assert couleurMur == "blue" || couleurMur == "green" || couleurMur == "pink" : "Post condition non respectée : Mauvaise couleur de mur";
 
 		this.invariant();
-		BeliefState.setStaticVariables(this.gamePositions, this.visible, this.pacmanX, this.pacmanY, this.ghosts, this.tailleCase, this.nbCases);
+		this.level.setVariables(this.gamePositions, this.lineOfSight, this.pacmanX, this.pacmanY, this.ghosts, this.tailleCase);
 		this.visibleBeliefState.add(new BeliefState(this.state, false));
 	}
 	
@@ -298,16 +291,7 @@ public class Map {
 	}
 	
 	public boolean isVisible(int row1, int column1, int row2, int column2) {
-		//System.out.println("isVisible " + row1 + "," + column1 + ";" + row2 + "," + column2);
-		if(row1 == row2) {
-			//System.out.println("row " + row1 + " columns " + column1 + "," + column2);
-			return this.visible.contains(row1+","+Math.min(column1,column2)+";"+row2+","+Math.max(column1, column2));
-		}
-		if(column1 == column2) {
-			//System.out.println("column " + column1 + " rows " + row1 + "," + row2);
-			return this.visible.contains(Math.min(row1, row2)+","+column1+";"+Math.max(row1, row2)+","+column2);
-		}
-		return false;
+		return this.lineOfSight.isVisible(row1, column1, row2, column2);
 	}
 	
 	public PacManLauncher getPml() {
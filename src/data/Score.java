@@ -1,41 +1,166 @@
 package data;
 import java.io.*;
-//import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 
 /**
- * Cette classe permet, à partir d'un fichier .map, de créer toutes les figures d'un niveau
+ * Cette classe garde le meilleur score et le classement des meilleurs résultats de chaque map.
+ * Les fichiers sont lus une seule fois, au premier accès, puis les lectures se font en mémoire.
+ * Les modifications sont écrites par un thread dédié : le fichier est écrit à côté puis renommé,
+ * de sorte qu'un fichier de score n'est jamais lu à moitié écrit.
  *
  * @author RGM
  * @version 03/03/2014
  *
  * @inv SCOREFILE == "./doc/score.score"
+ * @inv chaque classement est trié par ordre décroissant et contient au plus TOP scores
  */
 public class Score {
 
 	/** Le fichire contenant le score */
 	private static final String SCOREFILE = "./doc/score.score";
+	/** Le fichier contenant le classement de chaque map, une ligne "map;score" par résultat */
+	private static final String LEADERBOARDFILE = "./doc/leaderboard.score";
+	/** Le nombre de résultats gardés pour chaque map */
+	public static final int TOP = 10;
 
-	public static String getScore(){
-		String str = "0";
+	/** Le meilleur score, null tant que le fichier n'est pas lu */
+	private static String score;
+	/** Les meilleurs résultats de chaque map */
+	private static TreeMap<Integer, ArrayList<Integer>> leaderboard;
+	/** Le thread qui écrit les fichiers */
+	private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "score writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	public static synchronized String getScore(){
+		if(score == null) {
+			score = "0";
+			try {
+				InputStream ips = new FileInputStream(SCOREFILE);
+				InputStreamReader ipsr = new InputStreamReader(ips);
+				BufferedReader br = new BufferedReader(ipsr);
+				String str = br.readLine();
+				if(str != null)
+					score = str;
+				br.close();
+			}
+			catch (IOException exception) {
+				System.out.println ("Erreur lors de la lecture du score : " + exception.getMessage());
+			}
+		}
+		return score;
+	}
+
+	public static synchronized void setScore(String score){
+		Score.score = score;
+		writer.execute(() -> write(SCOREFILE, score));
+	}
+
+	/**
+	 * Ajoute un résultat au classement d'une map
+	 *
+	 * @param map le numéro de la map
+	 * @param result le score obtenu
+	 * @return vrai si le résultat entre dans le classement
+	 */
+	public static synchronized boolean addResult(int map, int result) {
+		ArrayList<Integer> top = getLeaderboards().computeIfAbsent(map, k -> new ArrayList<Integer>());
+		int rank = 0;
+		while(rank < top.size() && top.get(rank) >= result)
+			rank++;
+		if(rank >= TOP)
+			return false;
+		top.add(rank, result);
+		if(top.size() > TOP)
+			top.remove(TOP);
+		StringBuilder sb = new StringBuilder();
+		for(java.util.Map.Entry<Integer, ArrayList<Integer>> entry: leaderboard.entrySet()) {
+			for(int value: entry.getValue()) {
+				sb.append(entry.getKey() + ";" + value + "\n");
+			}
+		}
+		String content = sb.toString();
+		writer.execute(() -> write(LEADERBOARDFILE, content));
+		return true;
+	}
+
+	/**
+	 * Retourne le classement d'une map
+	 *
+	 * @param map le numéro de la map
+	 * @return les meilleurs scores de la map, par ordre décroissant
+	 */
+	public static synchronized ArrayList<Integer> getLeaderboard(int map) {
+		return new ArrayList<Integer>(getLeaderboards().getOrDefault(map, new ArrayList<Integer>()));
+	}
+
+	/** Les classements, lus dans le fichier au premier accès */
+	private static TreeMap<Integer, ArrayList<Integer>> getLeaderboards() {
+		if(leaderboard == null) {
+			leaderboard = new TreeMap<Integer, ArrayList<Integer>>();
+			File file = new File(LEADERBOARDFILE);
+			if(file.exists()) {
+				try {
+					BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+					String ligne;
+					while ((ligne = br.readLine()) != null) {
+						String[] param = ligne.split(";");
+						if(param.length == 2)
+							leaderboard.computeIfAbsent(Integer.parseInt(param[0]), k -> new ArrayList<Integer>()).add(Integer.parseInt(param[1]));
+					}
+					br.close();
+				}
+				catch (IOException | NumberFormatException exception) {
+					System.out.println ("Erreur lors de la lecture du classement : " + exception.getMessage());
+				}
+				for(ArrayList<Integer> top: leaderboard.values()) {
+					top.sort(Collections.reverseOrder());
+					while(top.size() > TOP)
+						top.remove(TOP);
+				}
+			}
+		}
+		return leaderboard;
+	}
+
+	/**
+	 * Attend que les scores en attente soient écrits, à appeler avant de quitter le jeu
+	 */
+	public static void flush() {
 		try {
-			InputStream ips = new FileInputStream(SCOREFILE);
-			InputStreamReader ipsr = new InputStreamReader(ips);
-			BufferedReader br = new BufferedReader(ipsr);
-			str = br.readLine();
-			br.close();
+			writer.submit(() -> {}).get(5, TimeUnit.SECONDS);
 		}
-		catch (IOException exception) {
+		catch (Exception exception) {
 			System.out.println ("Erreur lors de l'ecriture du score : " + exception.getMessage());
 		}
-		return str;
 	}
 
-	public static void setScore(String score){
+	/** Écrit un fichier à côté de sa destination puis le renomme */
+	private static void write(String fileName, String content) {
+		Path target = Paths.get(fileName);
 		try {
-			FileWriter fw = new FileWriter(SCOREFILE);
-			fw.write(score);
-			fw.close();
+			Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+			try {
+				FileWriter fw = new FileWriter(temp.toFile());
+				fw.write(content);
+				fw.close();
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			finally {
+				Files.deleteIfExists(temp);
+			}
 		}
 		catch (IOException exception) {
 			System.out.println ("Erreur lors de l'ecriture du score : " + exception.getMessage());
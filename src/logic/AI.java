@@ -1,6 +1,12 @@
 package logic;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import view.Gomme;
 
@@ -97,6 +103,78 @@ class Result{
 	}
 }
 
+/**
+ * fork/join task computing the aggregated utility of one plan of the root, each of its belief states is searched by its own subtask
+ */
+class PlanSearchTask extends RecursiveTask<Float>{
+	private static final long serialVersionUID = 1L;
+	private Result result;
+	private int depth;
+	private SearchContext context;
+
+	/**
+	 * construct the task evaluating a given result
+	 * @param result the belief states reached by the action of the plan
+	 * @param depth the depth of the search below each belief state
+	 * @param context the search state of the game
+	 */
+	public PlanSearchTask(Result result, int depth, SearchContext context) {
+		this.result = result;
+		this.depth = depth;
+		this.context = context;
+	}
+
+	protected Float compute() {
+		ArrayList<BeliefSearchTask> tasks = new ArrayList<BeliefSearchTask>();
+		for(BeliefState bstate : this.result.getBeliefStates()) {
+			tasks.add(new BeliefSearchTask(bstate, this.depth, this.context));
+		}
+		invokeAll(tasks);
+		ArrayList<Float> belief_utilities = new ArrayList<Float>();
+		for(BeliefSearchTask task : tasks) {
+			belief_utilities.add(task.join());
+		}
+		return AI.aggregateValues(belief_utilities);
+	}
+}
+
+/**
+ * fork/join task running the tree search from one belief state of the root
+ */
+class BeliefSearchTask extends RecursiveTask<Float>{
+	private static final long serialVersionUID = 1L;
+	private BeliefState bstate;
+	private int depth;
+	private SearchContext context;
+
+	/**
+	 * construct the task searching from a given belief state
+	 * @param bstate the belief state from which the tree search starts
+	 * @param depth the depth of the search
+	 * @param context the search state of the game
+	 */
+	public BeliefSearchTask(BeliefState bstate, int depth, SearchContext context) {
+		this.bstate = bstate;
+		this.depth = depth;
+		this.context = context;
+	}
+
+	protected Float compute() {
+		return AI.treesearch(this.bstate, 0, this.depth, this.bstate, this.context);
+	}
+}
+
+/**
+ * thrown by the tree search when the deadline of the current move is over or the search is stopped, the iteration in progress is then abandoned
+ */
+class SearchTimeoutException extends RuntimeException{
+	private static final long serialVersionUID = 1L;
+
+	public SearchTimeoutException() {
+		super(null, null, false, false);
+	}
+}
+
 
 /**
  * class implement the AI to choose the next move of the Pacman
@@ -104,7 +182,10 @@ class Result{
 public class AI{
 
 	// We want our memory to work on the most general case as possible, and since results can be much more diverse than beliefstates, we use belifstates as keys to our memory
-	public static TreeMap<BeliefState,Float> memory = new TreeMap<BeliefState, Float>();
+	// It is a transposition table indexed by the Zobrist key of the beliefstates, which the parallel search can share between the workers
+	// It is kept between moves in the SearchContext of the game, values stored more than memory_refresh_rate moves ago being forgotten
+	// The heuristic compares the gums of a leaf with the ones of the root child it comes from, so this number is part of the key (see memoryKey)
+	static int memory_size_mb = Integer.getInteger("pacman.memorySizeMb", 16);
 	
 	// Parameters to fiddle with
 
@@ -119,9 +200,78 @@ public class AI{
 	static final boolean virtual_ghost = false;
 	static final float ghost_sight_reward =30;
 	static final float escape_option_bonus = 0;
+	static final float completion_bonus = 1000;
+	// Abandon the actions whose children values are bounded below the best action (see star1_cutoff)
+	// Off by default: with the bound of upper_bound it skips about 5% of the children, which does not pay for the bounds (see Benchmarks findNextMovePruned)
+	static boolean star1_pruning = Boolean.getBoolean("pacman.star1Pruning");
+
+	// Search used to choose the moves: "expectimax" for treesearch, "mcts" for MonteCarloTreeSearch
+	static String engine = System.getProperty("pacman.engine", "expectimax");
+
+	// Time allowed to choose a move in milliseconds. When positive the depth is not fixed anymore:
+	// the search is iteratively deepened until the time is over and the move of the deepest completed iteration is played
+	static long time_budget = Long.getLong("pacman.timeBudgetMs", 0);
+	static final int max_iterative_depth = 30;
+
+	// Count the nodes, the memory hits and the children searched by treesearch in the SearchStats of the game (see setSearchStats)
+	static volatile boolean search_stats = Boolean.getBoolean("pacman.searchStats");
+
+	// Search the belief states which may follow the move being played while Pacman moves across the cell, to fill the memory before the next move (see ponder)
+	static boolean ponder = Boolean.parseBoolean(System.getProperty("pacman.ponder", "true"));
 
+	// Number of threads used to search the plans of the root, 1 keeps the serial search (each game has its own pool, see SearchContext.getPool)
+	static volatile int parallelism = Integer.getInteger("pacman.parallelism", 1);
 
-	static int number_of_moves = 0;
+	// Search state of the game played in the window, the other games give their own context to findNextMove
+	static final SearchContext window_context = new SearchContext();
+
+	/**
+	 * set the number of threads used to search the root plans, the pool of each game is replaced before its next search
+	 * @param parallelism the number of threads, 1 (or less) for the serial search
+	 */
+	public static void setParallelism(int parallelism) {
+		AI.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * turn the instrumentation of the search on or off, the counters are read with SearchContext.getStats
+	 * @param enabled true to count what the search does, which slows it down a little
+	 */
+	public static void setSearchStats(boolean enabled) {
+		AI.search_stats = enabled;
+	}
+
+	/**
+	 * return the counters of the search of the game played in the window
+	 * @return the counters, only filled when the instrumentation is on
+	 */
+	public static SearchStats getSearchStats() {
+		return AI.window_context.getStats();
+	}
+
+	/**
+	 * set the search used to choose the moves
+	 * @param engine "expectimax" or "mcts"
+	 */
+	public static void setEngine(String engine) {
+		AI.engine = engine;
+	}
+
+	/**
+	 * set the time allowed to choose a move
+	 * @param milliseconds the time budget of a move, 0 (or less) to search at the fixed depth maxdepth
+	 */
+	public static void setTimeBudget(long milliseconds) {
+		AI.time_budget = milliseconds;
+	}
+
+	/**
+	 * return the depth of the search which chose the last move
+	 * @return the depth of the last completed iteration, maxdepth when there is no time budget (the depth of the deepest node for MCTS)
+	 */
+	public static int getDepthReached() {
+		return AI.window_context.getDepthReached();
+	}
 
 	public static int manhatan_distance(Position p1, Position p2){
 		return Math.abs(p1.x - p2.x) + Math.abs(p1.y - p2.y);
@@ -165,28 +315,9 @@ public class AI{
 	// Checks for the distance to the nearest existing gom
 	// Is used in the heuristic to incentivize going towards goms
 	public static int nearest_gom_distance(BeliefState bstate){
-		Position pacmanpos = bstate.getPacmanPosition();
-		int pacmanx = pacmanpos.x; int pacmany = pacmanpos.y;
-
-		char[][] map = bstate.getMap();
-
-		int max_search_distance = 25;
-		int i; int k; int j;
-		for(k=1; k<= max_search_distance; k++){
-			for(i=-k; i<=k; i++){
-				for(j=-k; j<=k; j++){
-					if(pacmanx + i >= 25 ||
-					pacmanx + i < 0 ||
-					pacmany + j >= 25 ||
-					pacmany +j < 0)continue;
-					if( map[pacmanx + i][pacmany + j] =='.') {
-						return Math.abs(i) + Math.abs(j);
-					}
-				}
-			}
-		}
-		System.out.println("gom not found. Move "+ number_of_moves);
-		return 2 * max_search_distance;
+		int distance = bstate.distanceMinToGum();
+		if(distance == Integer.MAX_VALUE) return 2 * bstate.getMapSize(); // no gum left, or none reachable
+		return distance;
 	}
 
 	// Tells us if pacman currently sees a ghost
@@ -194,10 +325,9 @@ public class AI{
 		int pathway_count =0;
 		Position pacmanpos = bstate.getPacmanPosition();
 		int pacmanx = pacmanpos.x; int pacmany = pacmanpos.y;
-		char[][] map = bstate.getMap();
 
-		for (int i=-1; i<=1; i+=2) if(map[pacmanx+i][pacmany]!='#') pathway_count++;
-		for (int i=-1; i<=1; i+=2) if(map[pacmanx][pacmany+i]!='#') pathway_count++;
+		for (int i=-1; i<=1; i+=2) if(!bstate.isWall(pacmanx+i, pacmany)) pathway_count++;
+		for (int i=-1; i<=1; i+=2) if(!bstate.isWall(pacmanx, pacmany+i)) pathway_count++;
 
 		return pathway_count;
 	}
@@ -229,7 +359,7 @@ public class AI{
 
 		int current_nbgoms = bstate.getNbrOfGommes();
 
-		if(current_nbgoms==0) hscore+= 1000; // Big bonus if the map is finished
+		if(current_nbgoms==0) hscore+= completion_bonus; // Big bonus if the map is finished
 		else if(current_nbgoms < original_bstate.getNbrOfGommes()) hscore+= gom_distance_weight; // Else if a new gom was eaten then don't bother with the search and give a small bonus
 		else hscore -= gom_distance_weight * bstate.distanceMinToGum(); // else subtract points based on distance to nearest gom
 
@@ -238,23 +368,83 @@ public class AI{
 		return hscore;
 	}
 	
+	// Upper bound of the value treesearch can give to a belief state whose leaves are at most leaf_distance moves below it:
+	// pacman eats a gum at every move, every ghost that is or can be made afraid is eaten,
+	// every ghost is in sight and the gum term of the heuristic gives its best bonus
+	// It has to cost less than the heuristic of a leaf, so the gums are only bounded by their number, not by their distance
+	public static float upper_bound(BeliefState bstate, int leaf_distance) {
+		if (bstate.getLife()==0) return 0;
+
+		int eaten_goms = Math.min(leaf_distance, bstate.getNbrOfGommes());
+		int eaten_super_goms = Math.min(eaten_goms, bstate.getNbrOfSuperGommes());
+
+		// A ghost can only be eaten once while it is afraid, then once more after each super gum
+		int eaten_ghosts = 0;
+		if (leaf_distance > 0) {
+			for(int k=0; k< bstate.getNbrOfGhost(); k++){
+				if (bstate.getCompteurPeur(k) > 0) eaten_ghosts++;
+			}
+			eaten_ghosts += eaten_super_goms * bstate.getNbrOfGhost();
+		}
+
+		float bound = bstate.getScore() + eaten_goms * Gomme.SCORE_GOMME + eaten_ghosts * Ghost.SCORE_FANTOME + bstate.getNbrOfGhost() * ghost_sight_reward;
+		return bound + (bstate.getNbrOfGommes() <= eaten_goms ? completion_bonus : gom_distance_weight);
+	}
+
+	// Star1 cutoff of a chance node: true when the aggregated value of its children can no longer exceed the best value already found
+	// values holds the children already searched and remaining_bound the sum of the upper bounds of the others
+	public static boolean star1_cutoff(ArrayList<Float> values, float remaining_bound, int nbchildren, float best_value) {
+		if (Objects.equals(aggregate_method, "mean")) {
+			float sum = remaining_bound;
+			for(Float value : values) {
+				sum+=value;
+			}
+			return sum/nbchildren <= best_value;
+		}
+
+		else if (Objects.equals(aggregate_method, "min")){
+			return !values.isEmpty() && Collections.min(values) <= best_value;
+		}
+		return false;
+	}
+
+	// Key of a belief state in the memory: its value depends on the number of gums of the root child the search comes from, through the heuristic
+	static long memoryKey(BeliefState bstate, BeliefState original_state) {
+		return bstate.getHashKey() ^ original_state.getNbrOfGommes() * 0x9E3779B97F4A7C15L;
+	}
+
 	// As we save values based on beliefstates and not on results, had to rework this function to work on  beliefstates
-	public static float treesearch(BeliefState bstate, int currentdepth, BeliefState original_state) {
+	public static float treesearch(BeliefState bstate, int currentdepth, int depth, BeliefState original_state, SearchContext context) {
+
+		SearchStats stats = search_stats ? context.stats : null; // null when the search is not instrumented
 
 		// If we reach a leaf, stop expanding and return the heuristic value
-		if(currentdepth == maxdepth) return heuristic(bstate, original_state);
+		if(currentdepth == depth) {
+			if(stats != null) stats.leaves.increment();
+			return heuristic(bstate, original_state);
+		}
+
+		// If the time of the move is over, give up this iteration (nothing computed from here is saved in the memory)
+		if(context.stopped || context.deadline != 0 && System.nanoTime() > context.deadline) throw new SearchTimeoutException();
 
 		ArrayList<BeliefState> beliefchildren;
+		ArrayList<BeliefState> sampled_children;
+		float[] children_bounds;
+		float remaining_bound;
 		ArrayList<Float> children_values;
 		float nbchildren;
 		float expand_proba;
 		Result result;
 
 		float child_value;
+		int child_depth = depth - currentdepth - 1; // depth that remains to be searched below the children
+		boolean pruning = star1_pruning;
+		int leaf_distance = pruning ? child_depth + context.memory.maxDepth() : 0; // values read from the memory may come from deeper searches
 		float max_actionvalue = Float.MIN_VALUE;
 		float actionvalue;
 
 		Plans plans = bstate.extendsBeliefState();
+		if(stats != null) stats.expand(bstate);
 
 		for(int i=0; i<plans.size(); i++){
 
@@ -266,13 +456,38 @@ public class AI{
 			nbchildren = beliefchildren.size();
 			expand_proba = max_expand / nbchildren;
 
+			// To ease the computation burden, we don't compute all the expanded beliefstates
+			// We randomly skip some of them depending on how many there are.
+			// The expected number of children expanded is the minimum between the number of children and the parameter max_expand.
+			sampled_children = new ArrayList<BeliefState>();
+			for(BeliefState beliefchild : beliefchildren){
+				if(context.random.nextDouble() <= expand_proba) sampled_children.add(beliefchild);
+			}
+			if(stats != null) {
+				stats.children.add(beliefchildren.size());
+				stats.sampled.add(sampled_children.size());
+			}
+
+			// Star1 pruning: the children not searched yet are replaced by an upper bound of their value,
+			// as soon as this action cannot beat the best one anymore the rest of its children are not searched
+			children_bounds = pruning ? new float[sampled_children.size()] : null;
+			remaining_bound = 0;
+			for(int j=0; pruning && j<sampled_children.size(); j++){
+				children_bounds[j] = upper_bound(sampled_children.get(j), leaf_distance);
+				remaining_bound += children_bounds[j];
+			}
+
 			children_values = new ArrayList<Float>();
 
-			for(BeliefState beliefchild : beliefchildren){
-				// To ease the computation burden, we don't compute all the expanded beliefstates
-				// We randomly skip some of them depending on how many there are.
-				// The expected number of children expanded is the minimum between the number of children and the parameter max_expand.
-				if(Math.random()> expand_proba)continue;
+			for(int j=0; j<sampled_children.size(); j++){
+				if (pruning) {
+					if (star1_cutoff(children_values, remaining_bound, sampled_children.size(), max_actionvalue)) {
+						if(stats != null) stats.pruned.add(sampled_children.size() - j);
+						break;
+					}
+					remaining_bound -= children_bounds[j];
+				}
+				BeliefState beliefchild = sampled_children.get(j);
 
 				// VIRTUAL GHOST
 				// Since pacman is much more efficient when chased by a ghost, the idea is to make him think that he is even when he's not
@@ -289,23 +504,32 @@ public class AI{
 						//|| manhatan_distance(original_state.getPacmanPos(), beliefchild.getPacmanPos())==0
 				){
 					// If pacman is dead or came back to his original position, don't expand further
+					if(stats != null) stats.leaves.increment();
 					child_value = heuristic(beliefchild, original_state);
 					//memory.put(beliefchild, child_value);
 				}
 
-				else if(memory.containsKey(beliefchild)) {
-					// If this beliefstate has already been considered, output the already known answer
-					child_value =  memory.get(beliefchild);
-				}
-
 				else {
-					child_value = treesearch(beliefchild, currentdepth + 1, original_state);
-					memory.put(beliefchild, child_value); // Obviously, save that result in the memory
+					// If this beliefstate has already been considered at least as deep, output the already known answer
+					child_value = context.memory.get(memoryKey(beliefchild, original_state), child_depth);
+					if(stats != null) {
+						stats.probes.increment();
+						if(!Float.isNaN(child_value)) stats.hits.increment();
+					}
+					if(Float.isNaN(child_value)) {
+						child_value = treesearch(beliefchild, currentdepth + 1, depth, original_state, context);
+						context.memory.put(memoryKey(beliefchild, original_state), child_depth, child_value); // Obviously, save that result in the memory
+					}
 				}
 				children_values.add(child_value);
 			}
 
-			if(children_values.isEmpty()) actionvalue = heuristic(bstate, original_state);
+			if(children_values.size() < sampled_children.size()) continue; // pruned, this action is not better than the best one
+
+			if(children_values.isEmpty()) {
+				if(stats != null) stats.leaves.increment();
+				actionvalue = heuristic(bstate, original_state);
+			}
 
 			else actionvalue = aggregateValues(children_values);
 
@@ -316,31 +540,153 @@ public class AI{
 	}
 	
 	/**
-	 * function that compute the next action to do (among UP, DOWN, LEFT, RIGHT)
+	 * function that compute the next action to do (among UP, DOWN, LEFT, RIGHT) in the game played in the window
 	 * @param beliefState the current belief-state of the agent
-	 * @param depth the depth of the search (size of the largest sequence of action checked)
 	 * @return a string describing the next action (among PacManLauncher.UP/DOWN/LEFT/RIGHT)
 	 */
 	public static String findNextMove(BeliefState beliefState) {
-        memory.clear();
-		Plans plans = beliefState.extendsBeliefState();
-		
+		return findNextMove(beliefState, AI.window_context);
+	}
+
+	/**
+	 * function that compute the next action to do (among UP, DOWN, LEFT, RIGHT)
+	 * @param beliefState the current belief-state of the agent
+	 * @param context the search state of the game, updated by the search
+	 * @return a string describing the next action (among PacManLauncher.UP/DOWN/LEFT/RIGHT)
+	 */
+	public static String findNextMove(BeliefState beliefState, SearchContext context) {
+		return findNextMove(beliefState, context, false);
+	}
+
+	// Search of a move, which may be stopped through the context when it is interruptible: it is then iteratively deepened even at a fixed depth,
+	// up to maxdepth, so that the move of the deepest completed iteration is played rather than no move at all
+	private static String findNextMove(BeliefState beliefState, SearchContext context, boolean interruptible) {
+		context.memory.setGeneration(context.number_of_moves);
+		try {
+			Plans plans = beliefState.extendsBeliefState();
+			String chosen_action;
+
+			if(Objects.equals(engine, "mcts")) {
+				chosen_action = MonteCarloTreeSearch.findNextMove(beliefState, plans, time_budget > 0 ? System.nanoTime() + time_budget * 1000000 : 0, context);
+			}
+			else if(time_budget <= 0 && !interruptible) {
+				chosen_action = chooseAction(beliefState, plans, maxdepth, context);
+				context.depth_reached = maxdepth;
+			}
+			else {
+				// Iterative deepening: the depth 0 iteration only evaluates the heuristic and is never interrupted, so there always is a move to play
+				long start = System.nanoTime();
+				chosen_action = chooseAction(beliefState, plans, 0, context);
+				context.depth_reached = 0;
+				context.deadline = time_budget > 0 ? start + time_budget * 1000000 : 0;
+				try {
+					for(int depth = 1; depth <= (time_budget > 0 ? max_iterative_depth : maxdepth); depth++) {
+						chosen_action = chooseAction(beliefState, plans, depth, context);
+						context.depth_reached = depth;
+					}
+				}
+				catch(SearchTimeoutException e) {
+					// the move of the last completed iteration is kept
+				}
+				finally {
+					context.deadline = 0;
+				}
+			}
+			// the states of the chosen plan are kept, so that the belief state of the game is updated without extending it again
+			for(int i=0; i<plans.size(); i++){
+				if(plans.getAction(i).get(0).equals(chosen_action)) context.setChosen(beliefState, chosen_action, plans.getResult(i));
+			}
+			return chosen_action;
+		}
+		finally {
+			if(search_stats) context.stats.endMove();
+			context.number_of_moves++;
+		}
+	}
+
+	/**
+	 * function that compute the next action to do on the worker thread of the game, without waiting beyond a deadline:
+	 * the search is iteratively deepened, up to maxdepth when there is no time budget, and when the deadline is over it is stopped
+	 * and the move of its deepest completed iteration is played (MCTS plays its best move so far)
+	 * @param beliefState the current belief-state of the agent
+	 * @param context the search state of the game, updated by the search
+	 * @param deadline System.nanoTime() at which the move is needed
+	 * @param fallback the action played if the thread is interrupted while waiting for the search, such as the previous move of Pacman
+	 * @return a string describing the next action (among PacManLauncher.UP/DOWN/LEFT/RIGHT)
+	 */
+	public static String findNextMove(BeliefState beliefState, SearchContext context, long deadline, String fallback) {
+		context.stopPondering();
+		Future<String> decision = context.getWorker().submit(() -> findNextMove(beliefState, context, true));
+		try {
+			try {
+				return decision.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			}
+			catch(TimeoutException e) {
+				context.stopped = true;
+				context.missed_deadlines++;
+				return decision.get(); // the search ends at its next node
+			}
+			finally {
+				context.stopped = false;
+			}
+		}
+		catch(ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return fallback;
+		}
+	}
+
+	/**
+	 * search in the background, on the worker thread of the game, the belief states which may follow the move being played,
+	 * until the next call to findNextMove(state, context, deadline, fallback): the values of their children are then in the memory,
+	 * so that the next search is mostly made of lookups. Nothing is done for MCTS, which does not use the memory.
+	 * The nodes searched are counted in the SearchStats of the next move.
+	 * @param beliefStates the belief states resulting from the move being played, the one the next move will be chosen from first
+	 * @param context the search state of the game
+	 */
+	public static void ponder(List<BeliefState> beliefStates, SearchContext context) {
+		if(!ponder || Objects.equals(engine, "mcts"))
+			return;
+		ArrayList<BeliefState> states = new ArrayList<BeliefState>(beliefStates);
+		context.startPondering(() -> ponderStates(states, context));
+	}
+
+	// The belief states are searched one after the other, the first one first since the next move is chosen from it:
+	// directly at maxdepth when the depth is fixed, iteratively deepened when there is a time budget
+	private static void ponderStates(ArrayList<BeliefState> states, SearchContext context) {
+		context.memory.setGeneration(context.number_of_moves); // the generation of the next move, whose search uses these values
+		try {
+			for(BeliefState state : states) {
+				Plans plans = state.extendsBeliefState();
+				if(time_budget <= 0) {
+					chooseAction(state, plans, maxdepth, context);
+				}
+				else {
+					for(int depth = 1; depth <= max_iterative_depth; depth++) {
+						chooseAction(state, plans, depth, context);
+					}
+				}
+			}
+		}
+		catch(SearchTimeoutException e) {
+			// stopped by the next move
+		}
+	}
+
+	// Select the action whose plan has the best aggregate utility when searched at a given depth
+	private static String chooseAction(BeliefState beliefState, Plans plans, int depth, SearchContext context) {
 		float max_utility = Integer.MIN_VALUE;
 		float plan_utility;
 		String chosen_action = PacManLauncher.LEFT;
-		ArrayList<Float> belief_utilities;
+		float[] plan_utilities = AI.parallelism > 1 ? parallelPlanUtilities(plans, depth, context) : serialPlanUtilities(plans, depth, context);
 		
 		// We are going to expand all possible beliefstates possible after each action and select the action with the best aggregate utility
 		for(int i=0; i<plans.size(); i++){
-			Result plan_result = plans.getResult(i);
 			String plan_action = plans.getAction(i).get(0);
-
-			belief_utilities = new ArrayList<Float>();
-			
-			for(BeliefState bstate : plan_result.getBeliefStates()) {
-				belief_utilities.add(treesearch(bstate, 0, bstate));
-			}			
-			plan_utility = aggregateValues(belief_utilities) ;
+			plan_utility = plan_utilities[i];
 
 			if (opposite_direction(plan_action, beliefState.getPacmanPos().getDirection() )) {
 				plan_utility -= turnback_penalty;
@@ -351,8 +697,39 @@ public class AI{
 				chosen_action = plan_action;
 			}
 		}
-		number_of_moves++;
-		//System.out.println("Found move "+ number_of_moves);
 		return chosen_action;
 	}
+
+	// Aggregated utility of every plan, the belief states of each plan being searched one after the other
+	private static float[] serialPlanUtilities(Plans plans, int depth, SearchContext context) {
+		float[] plan_utilities = new float[plans.size()];
+		ArrayList<Float> belief_utilities;
+		for(int i=0; i<plans.size(); i++){
+			belief_utilities = new ArrayList<Float>();
+			for(BeliefState bstate : plans.getResult(i).getBeliefStates()) {
+				belief_utilities.add(treesearch(bstate, 0, depth, bstate, context));
+			}
+			plan_utilities[i] = aggregateValues(belief_utilities);
+		}
+		return plan_utilities;
+	}
+
+	// Same as serialPlanUtilities, but every plan and every belief state of a plan is searched as a fork/join task
+	private static float[] parallelPlanUtilities(Plans plans, int depth, SearchContext context) {
+		ForkJoinPool pool = context.getPool();
+		ArrayList<PlanSearchTask> tasks = new ArrayList<PlanSearchTask>();
+		for(int i=0; i<plans.size(); i++){
+			tasks.add(new PlanSearchTask(plans.getResult(i), depth, context));
+			pool.execute(tasks.get(i));
+		}
+		// Every task is waited for before the results are read, so that no task of an abandoned iteration keeps running
+		for(PlanSearchTask task : tasks) {
+			task.quietlyJoin();
+		}
+		float[] plan_utilities = new float[plans.size()];
+		for(int i=0; i<plans.size(); i++){
+			plan_utilities[i] = tasks.get(i).join();
+		}
+		return plan_utilities;
+	}
 }
\ No newline at end of file
@@ -6,10 +6,10 @@ import java.util.ArrayList;
 import java.util.HashSet;
 //import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Scanner;
-import java.util.TreeSet;
+import java.util.concurrent.ForkJoinTask;
 
+import data.LineOfSight;
 import data.Map;
 import view.Gomme;
 
@@ -92,41 +92,36 @@ class Position implements Comparable{
  * an object BeliefState represents all relevant information about the game.
  */
 public class BeliefState implements Comparable{
-	private char map[][];
-	private ArrayList<TreeSet<Position>> listPGhost;
+	// The map is stored as bitsets of its squares, square (i, j) being the bit i * taille + j:
+	// walls and initial squares of the ghosts never change and are read from the level, gums and super gums are owned by each state
+	private long[] gums, superGums;
+	private GumField gumField; // distances to the gums, null until it is needed
+	private ArrayList<GhostPositions> listPGhost;
 	private Position pacmanPos, pacmanOldPos;
-	private int nbrOfGommes, nbrOfSuperGommes, score, life;
+	private int score, life;
 	private ArrayList<Integer> compteurPeur;
-	private static ArrayList<int[]> gamePositions;
-	private static HashSet<String> visible;
-	private static int pacmanXInit, pacmanYInit;
-	private static ArrayList<int[]> listPGhostInit;
-	private static int tailleCase;
-	private static int taille;
+	// A copy shares the gums, the ghosts and the fear counters that the state it was copied from marks as shared, and copies the others,
+	// a shared component is copied by a state before it modifies it (the sets of positions of the ghosts are never modified, only replaced)
+	private boolean sharedGums, sharedGhosts, sharedFear;
+	private long hash;
+	private final Level level; // shared by all the states of a game on the same level
+	// smallest number of belief states extended in parallel by extendsBeliefStates
+	static int parallel_update = Integer.getInteger("pacman.parallelUpdate", 4);
 	
-	
-	public static void setStaticVariables(ArrayList<int[]> gamePositions, HashSet<String> visible, int pacmanXInit, int pacmanYInit, ArrayList<int[]> listPGhostInit, int tailleCase, int taille) {
-		BeliefState.gamePositions = gamePositions;
-		BeliefState.visible = visible;
-		BeliefState.pacmanXInit = pacmanXInit;
-		BeliefState.pacmanYInit = pacmanYInit;
-		BeliefState.listPGhostInit = listPGhostInit;
-		BeliefState.tailleCase = tailleCase;
-		BeliefState.taille = taille;
-	}
 	/**
 	 * create a new BeliefState object
-	 * @param theMap the current version of the Pacman man discribing the position of (super) gums
+	 * @param level the level of the game, whose squares are given afterwards with modifyMap
 	 * @param score the current score
 	 * @param life the number of remaining lifes for Pacman
 	 */
-	public BeliefState(int taille, int score, int life) {
-		BeliefState.taille = taille;
-		this.map = new char[BeliefState.taille][BeliefState.taille];
+	public BeliefState(Level level, int score, int life) {
+		this.level = level;
+		this.gums = new long[level.words()];
+		this.superGums = new long[level.words()];
 		this.pacmanPos = new Position(0,0,'U');
 		this.pacmanOldPos = this.pacmanPos;
-		this.listPGhost = new ArrayList<TreeSet<Position>>();
-		this.nbrOfGommes = 0;
+		this.hash = Zobrist.pacman(0, 0, 'U');
+		this.listPGhost = new ArrayList<GhostPositions>();
 		this.score = score;
 		this.compteurPeur = new ArrayList<Integer>();
 		this.life = life;
@@ -134,19 +129,19 @@ public class BeliefState implements Comparable{
 	
 	/*public BeliefState(InputStream in) {
 		Scanner scan = new Scanner(in);
-		BeliefState.taille = scan.nextInt();
+		this.level.taille = scan.nextInt();
 		scan.nextLine();
-		this.map = new char[BeliefState.taille][BeliefState.taille];
-		for(int i = 0; i < BeliefState.taille; i++) {
+		this.map = new char[this.level.taille][this.level.taille];
+		for(int i = 0; i < this.level.taille; i++) {
 			String line = scan.nextLine();
-			for(int j = 0; j < BeliefState.taille; j++) {
+			for(int j = 0; j < this.level.taille; j++) {
 				this.map[i][j] = line.charAt(j);
 			}
 		}
 		int pacmanPosX = scan.nextInt(), pacmanPosY = scan.nextInt();
-		BeliefState.pacmanXInit = scan.nextInt();
-		BeliefState.pacmanYInit = scan.nextInt();
-		BeliefState.tailleCase = scan.nextInt();
+		this.level.pacmanXInit = scan.nextInt();
+		this.level.pacmanYInit = scan.nextInt();
+		this.level.tailleCase = scan.nextInt();
 		scan.nextLine();
 		String line = scan.nextLine();
 		this.pacmanPos = new Position(pacmanPosX, pacmanPosY, line.charAt(0));
@@ -157,7 +152,7 @@ public class BeliefState implements Comparable{
 		int sizeListPGhost = scan.nextInt();
 		this.listPGhost = new ArrayList<TreeSet<Position>>();
 		this.compteurPeur = new ArrayList<Integer>();
-		BeliefState.listPGhostInit = new ArrayList<int[]>();
+		this.level.listPGhostInit = new ArrayList<int[]>();
 		for(int i = 0; i < sizeListPGhost; i++) {
 			TreeSet<Position> posGhost = new TreeSet<Position>();
 			this.compteurPeur.add(scan.nextInt());
@@ -174,15 +169,15 @@ public class BeliefState implements Comparable{
 			int[] posG = new int[2];
 			posG[0] = scan.nextInt();
 			posG[1] = scan.nextInt();
-			BeliefState.listPGhostInit.add(posG);
+			this.level.listPGhostInit.add(posG);
 		}
 		int gamePositionSize = scan.nextInt();
-		BeliefState.gamePositions = new ArrayList<int[]>();
+		this.level.gamePositions = new ArrayList<int[]>();
 		for(int index = 0; index < gamePositionSize; index++) {
 			int[] posCell = new int[2];
 			posCell[0] = scan.nextInt();
 			posCell[1] = scan.nextInt();
-			BeliefState.gamePositions.add(posCell);
+			this.level.gamePositions.add(posCell);
 		}
 		while(scan.hasNext()) {
 			line = scan.nextLine();
@@ -201,14 +196,14 @@ public class BeliefState implements Comparable{
 		comp = this.score - bs.score;
 		if(comp != 0)
 			return comp;
-		comp = this.nbrOfGommes - bs.nbrOfGommes;
+		comp = this.getNbrOfGommes() - bs.getNbrOfGommes();
 		if(comp != 0)
 			return comp;
-		comp = this.nbrOfSuperGommes - bs.nbrOfSuperGommes;
+		comp = this.getNbrOfSuperGommes() - bs.getNbrOfSuperGommes();
 		if(comp != 0)
 			return comp;
-		for(int[] pos:BeliefState.gamePositions) {
-			comp = this.map[pos[0]][pos[1]] - bs.map[pos[0]][pos[1]];
+		for(int[] pos:this.level.gamePositions) {
+			comp = this.getMap(pos[0], pos[1]) - bs.getMap(pos[0], pos[1]);
 			if(comp != 0)
 				return comp;
 		}
@@ -218,7 +213,7 @@ public class BeliefState implements Comparable{
 				return comp;
 		}
 		for(int i = 0; i < this.listPGhost.size(); i++) {
-			TreeSet<Position> posGhost1 = this.listPGhost.get(i), posGhost2 = bs.listPGhost.get(i);
+			GhostPositions posGhost1 = this.listPGhost.get(i), posGhost2 = bs.listPGhost.get(i);
 			comp = posGhost1.size() - posGhost2.size();
 			if(comp != 0)
 				return comp;
@@ -239,48 +234,325 @@ public class BeliefState implements Comparable{
 	 */
 
 	public BeliefState(BeliefState toCopy, boolean isDead) {
-		this(BeliefState.taille, toCopy.score, toCopy.life);
-		this.pacmanPos.dir = toCopy.pacmanPos.dir;
-		for(int i = 0; i < this.map.length; i++) {
-			for(int j = 0; j < this.map[i].length; j++) {
-				this.modifyMap(i, j, toCopy.map[i][j]);
-			}
-		}
+		this.level = toCopy.level;
+		// toCopy is only read, it may be copied by several threads at once: the components it shares are shared, the ones it owns are copied
+		this.gums = toCopy.sharedGums ? toCopy.gums : toCopy.gums.clone();
+		this.superGums = toCopy.sharedGums ? toCopy.superGums : toCopy.superGums.clone();
+		this.listPGhost = toCopy.sharedGhosts ? toCopy.listPGhost : new ArrayList<GhostPositions>(toCopy.listPGhost);
+		this.compteurPeur = toCopy.sharedFear ? toCopy.compteurPeur : new ArrayList<Integer>(toCopy.compteurPeur);
+		this.share();
+		this.gumField = toCopy.gumField != null ? toCopy.gumField : this.gumField();
+		this.pacmanPos = toCopy.pacmanPos.clone();
 		this.pacmanOldPos = toCopy.pacmanOldPos.clone();
-		if(!isDead) {
-			this.listPGhost.clear();
-			for(TreeSet<Position> listP: toCopy.listPGhost) {
-				TreeSet<Position> newListP = new TreeSet<Position>();
-				for(Position pos: listP.descendingSet()) {
-					newListP.add(pos.clone());
-				}
-				this.listPGhost.add(newListP);
-			}
-			for(int i = 0; i < toCopy.compteurPeur.size(); i++) {
-				this.compteurPeur.set(i, toCopy.compteurPeur.get(i));
+		this.score = toCopy.score;
+		this.life = toCopy.life;
+		this.hash = toCopy.hash;
+		if(isDead) {
+			// the ghosts are back on their initial squares
+			int k = 0;
+			for(int cell = BeliefState.nextSquare(this.level.ghostSquares, 0); cell >= 0; cell = BeliefState.nextSquare(this.level.ghostSquares, cell + 1)) {
+				this.setCompteurPeur(k, 0);
+				this.setGhostPosition(k++, new Position(cell / this.level.taille, cell % this.level.taille, 'U'));
 			}
-		}
-		else {
 			this.life = toCopy.life - 1;
-			this.moveTo(BeliefState.pacmanYInit / BeliefState.tailleCase, BeliefState.pacmanXInit / BeliefState.tailleCase, 'U');
+			this.moveTo(this.level.pacmanYInit / this.level.tailleCase, this.level.pacmanXInit / this.level.tailleCase, 'U');
 		}
 	}
 
 	/**
-	 * update the status of one square
+	 * update the status of one square, the walls and the initial squares of the ghosts being the ones of the level
 	 * @param i row of the square
 	 * @param j column of the square
 	 * @param val value coressponding to the content of the square
 	 */
 	public void modifyMap(int i, int j, char val) {
+		int cell = i * this.level.taille + j;
+		this.ownGums();
+		if(val == 'F' || val == 'B') {
+			this.ownGhosts();
+			this.ownFear();
+		}
+		this.hash ^= Zobrist.gum(i, j, this.gumContent(cell)) ^ Zobrist.gum(i, j, val);
+		this.gumField = null;
+		BeliefState.setSquare(this.gums, cell, val == '.');
+		BeliefState.setSquare(this.superGums, cell, val == '*');
 		switch(val) {
-		case '.': nbrOfGommes++; break;
-		case '*': nbrOfGommes++; nbrOfSuperGommes++; break;
-		case 'P': this.pacmanPos.x = i;this.pacmanPos.y = j; break;
-		case 'F': TreeSet<Position> posGhost = new TreeSet<Position>(); Position pos = new Position(i, j, 'U'); posGhost.add(pos); this.listPGhost.add(posGhost); this.compteurPeur.add(0);  break;
-		case 'B': this.pacmanPos.x = i;this.pacmanPos.y = j; TreeSet<Position> posGhost2 = new TreeSet<Position>(); Position pos2 = new Position(i, j, 'U'); posGhost2.add(pos2); this.listPGhost.add(posGhost2); this.compteurPeur.add(0); break;
+		case 'P': this.setPacmanPos(i, j, this.pacmanPos.dir); break;
+		case 'F': Position pos = new Position(i, j, 'U'); this.listPGhost.add(GhostPositions.of(this.level.taille, pos)); this.compteurPeur.add(0); this.hash ^= Zobrist.ghost(this.listPGhost.size() - 1, pos) ^ Zobrist.fear(this.compteurPeur.size() - 1, 0); break;
+		case 'B': this.setPacmanPos(i, j, this.pacmanPos.dir); Position pos2 = new Position(i, j, 'U'); this.listPGhost.add(GhostPositions.of(this.level.taille, pos2)); this.compteurPeur.add(0); this.hash ^= Zobrist.ghost(this.listPGhost.size() - 1, pos2) ^ Zobrist.fear(this.compteurPeur.size() - 1, 0); break;
+		}
+	}
+
+	/**
+	 * remove the gum or super gum of a square and keep the key of the state up to date
+	 * @param i row of the square
+	 * @param j column of the square
+	 */
+	private void removeGum(int i, int j) {
+		int cell = i * this.level.taille + j;
+		this.ownGums();
+		this.hash ^= Zobrist.gum(i, j, this.gumContent(cell));
+		if(this.gumField != null && this.gumContent(cell) != 'O')
+			this.gumField = this.gumField.without(cell);
+		BeliefState.setSquare(this.gums, cell, false);
+		BeliefState.setSquare(this.superGums, cell, false);
+	}
+
+	// Mark every component as shared, so that the copies of the state share them instead of copying them
+	// It is called on a state that no other thread can see yet: when it is built, and once extendsBeliefState has finished it
+	private void share() {
+		this.sharedGums = true;
+		this.sharedGhosts = true;
+		this.sharedFear = true;
+	}
+
+	// copy of a state that no other thread can see yet, as the states being built by extendsBeliefState:
+	// both share their components until one of them modifies them
+	private BeliefState localCopy(boolean isDead) {
+		this.share();
+		return new BeliefState(this, isDead);
+	}
+
+	// Copy-on-write of the components shared with other states, called before modifying them
+	private void ownGums() {
+		if(this.sharedGums) {
+			this.gums = this.gums.clone();
+			this.superGums = this.superGums.clone();
+			this.sharedGums = false;
+		}
+	}
+
+	private void ownGhosts() {
+		if(this.sharedGhosts) {
+			this.listPGhost = new ArrayList<GhostPositions>(this.listPGhost);
+			this.sharedGhosts = false;
+		}
+	}
+
+	private void ownFear() {
+		if(this.sharedFear) {
+			this.compteurPeur = new ArrayList<Integer>(this.compteurPeur);
+			this.sharedFear = false;
+		}
+	}
+
+	// field of the gums of the state, built from the bitsets if the state has none,
+	// which only happens to the state of a level being read and to the states being built, before other threads can see them
+	private GumField gumField() {
+		if(this.gumField == null) {
+			long[] allGums = new long[this.gums.length];
+			for(int i = 0; i < allGums.length; i++) {
+				allGums[i] = this.gums[i] | this.superGums[i];
+			}
+			this.gumField = new GumField(this.level.taille, this.level.walls, allGums);
 		}
-		this.map[i][j] = val;
+		return this.gumField;
+	}
+
+	// '*' or '.' if a square holds a super gum or a gum, 'O' otherwise
+	private char gumContent(int cell) {
+		if(BeliefState.isSquare(this.superGums, cell))
+			return '*';
+		return BeliefState.isSquare(this.gums, cell) ? '.' : 'O';
+	}
+
+	private static boolean isSquare(long[] bits, int cell) {
+		return (bits[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	private static void setSquare(long[] bits, int cell, boolean value) {
+		if(value)
+			bits[cell >>> 6] |= 1L << cell;
+		else
+			bits[cell >>> 6] &= ~(1L << cell);
+	}
+
+	// first square of a bitset from a given square on, -1 if there is none
+	private static int nextSquare(long[] bits, int from) {
+		int word = from >>> 6;
+		if(word >= bits.length)
+			return -1;
+		long remaining = bits[word] & (-1L << from);
+		while(remaining == 0) {
+			if(++word == bits.length)
+				return -1;
+			remaining = bits[word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(remaining);
+	}
+
+	private static int count(long[] bits) {
+		int count = 0;
+		for(long word: bits) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	// Tables of the level used to move the ghosts, the rules are the ones of extendsBeliefState for a ghost which does not chase Pacman:
+	// at a crossroad the ghost can take any way but the one it comes from, in a dead end it turns back, otherwise it goes straight on
+	private void buildGhostTables() {
+		synchronized(this.level) {
+			if(this.level.ghostMoves != null)
+				return;
+			int n = this.level.taille;
+			int[][] neighbours = {{1, 0}, {0, -1}, {0, 1}, {-1, 0}}; // in the order of GhostPositions.DIRECTIONS
+			long[][] moves = new long[4][GhostPositions.words(n)];
+			long[][] visibleSquares = new long[n * n][];
+			for(int x = 0; x < n; x++) {
+				for(int y = 0; y < n; y++) {
+					int cell = x * n + y;
+					if(BeliefState.isSquare(this.level.walls, cell))
+						continue;
+					boolean[] available = new boolean[4];
+					for(int e = 0; e < 4; e++) {
+						int nx = x + neighbours[e][0], ny = y + neighbours[e][1];
+						available[e] = nx >= 0 && ny >= 0 && nx < n && ny < n && !BeliefState.isSquare(this.level.walls, nx * n + ny);
+					}
+					for(int d = 0; d < 4; d++) {
+						boolean crossroad = d == 0 || d == 3 ? available[1] || available[2] : available[0] || available[3];
+						for(int e = 0; e < 4; e++) {
+							boolean allowed;
+							if(crossroad)
+								allowed = available[e] && e != 3 - d;
+							else if(!available[d])
+								allowed = available[e];
+							else
+								allowed = e == d;
+							if(allowed)
+								BeliefState.setSquare(moves[e], (cell << 2) + d, true);
+						}
+					}
+					long[] seen = new long[GhostPositions.words(n)];
+					for(int other = 0; other < n; other++) {
+						if(this.isVisible(other, y, x, y))
+							seen[(other * n + y) >>> 4] |= 0xFL << ((other * n + y) << 2);
+						if(this.isVisible(x, other, x, y))
+							seen[(x * n + other) >>> 4] |= 0xFL << ((x * n + other) << 2);
+					}
+					seen[cell >>> 4] |= 0xFL << (cell << 2);
+					visibleSquares[cell] = seen;
+				}
+			}
+			this.level.sight = visibleSquares;
+			this.level.ghostMoves = moves;
+		}
+	}
+
+	/**
+	 * return the possible positions of a ghost that have to be examined one by one because the ghost may meet Pacman or be seen by him
+	 * @param positions the possible positions of the ghost, as a bitset over the (square, direction) pairs
+	 * @param chasing true if the ghost is not afraid, it then chases Pacman when it sees him
+	 * @param pacmanFrom square of Pacman before his move
+	 * @param pacmanTo square of Pacman after his move
+	 * @return the positions that chase Pacman, that are on his new square or that can move to a square he sees
+	 */
+	private long[] interactingGhosts(long[] positions, boolean chasing, Position pacmanFrom, Position pacmanTo) {
+		long[] interacting = new long[positions.length];
+		long[] seenFrom = this.level.sight[pacmanFrom.x * this.level.taille + pacmanFrom.y];
+		long[] seenTo = this.level.sight[pacmanTo.x * this.level.taille + pacmanTo.y];
+		int square = pacmanTo.x * this.level.taille + pacmanTo.y;
+		interacting[square >>> 4] |= 0xFL << (square << 2);
+		for(int i = 0; i < positions.length; i++) {
+			long danger = interacting[i] | (chasing ? seenFrom[i] : 0);
+			for(int e = 0; e < 4; e++) {
+				danger |= this.level.ghostMoves[e][i] & BeliefState.shifted(seenTo, -this.shift(e), i);
+			}
+			interacting[i] = positions[i] & danger;
+		}
+		return interacting;
+	}
+
+	/**
+	 * move at once all the possible positions of a ghost which does not chase Pacman
+	 * @param positions the possible positions of the ghost, as a bitset over the (square, direction) pairs
+	 * @return the possible positions after the move
+	 */
+	private long[] moveGhosts(long[] positions) {
+		long[] moved = new long[positions.length], squares = new long[positions.length];
+		for(int e = 0; e < 4; e++) {
+			for(int i = 0; i < positions.length; i++) {//one bit per square that can be left toward e, whatever the direction of the ghost
+				long movable = positions[i] & this.level.ghostMoves[e][i];
+				squares[i] = (movable | movable >>> 1 | movable >>> 2 | movable >>> 3) & 0x1111111111111111L;
+			}
+			for(int i = 0; i < positions.length; i++) {
+				moved[i] |= BeliefState.shifted(squares, this.shift(e) + e, i);
+			}
+		}
+		return moved;
+	}
+
+	// number of bits between a square and its neighbour toward the direction of rank e, in a bitset over the (square, direction) pairs
+	private int shift(int e) {
+		switch(e) {
+		case 0: return this.level.taille << 2;
+		case 1: return -4;
+		case 2: return 4;
+		default: return -(this.level.taille << 2);
+		}
+	}
+
+	// word i of a bitset whose bits are moved by a given number of positions (toward the higher bits if positive)
+	private static long shifted(long[] bits, int shift, int i) {
+		int from = (i << 6) - shift;
+		int word = Math.floorDiv(from, 64), bit = from & 63;
+		long low = word >= 0 && word < bits.length ? bits[word] : 0;
+		if(bit == 0)
+			return low;
+		long high = word + 1 >= 0 && word + 1 < bits.length ? bits[word + 1] : 0;
+		return (low >>> bit) | (high << (64 - bit));
+	}
+
+	/**
+	 * move Pacman to a given square and keep the key of the state up to date
+	 * @param x row of Pacman
+	 * @param y column of Pacman
+	 * @param dir direction of Pacman
+	 */
+	private void setPacmanPos(int x, int y, char dir) {
+		this.hash ^= Zobrist.pacman(this.pacmanPos.x, this.pacmanPos.y, this.pacmanPos.dir) ^ Zobrist.pacman(x, y, dir);
+		this.pacmanPos.x = x;
+		this.pacmanPos.y = y;
+		this.pacmanPos.dir = dir;
+	}
+
+	/**
+	 * set the fear counter of a ghost and keep the key of the state up to date
+	 * @param k Id of the ghost
+	 * @param val new value of the counter
+	 */
+	private void setCompteurPeur(int k, int val) {
+		this.ownFear();
+		this.hash ^= Zobrist.fear(k, this.compteurPeur.get(k)) ^ Zobrist.fear(k, val);
+		this.compteurPeur.set(k, val);
+	}
+
+	/**
+	 * replace the set of possible positions of a ghost and keep the key of the state up to date
+	 * @param k Id of the ghost
+	 * @param positions the new possible positions of the ghost
+	 */
+	private void setGhostPositions(int k, GhostPositions positions) {
+		this.ownGhosts();
+		this.hash ^= Zobrist.ghosts(k, this.listPGhost.get(k)) ^ Zobrist.ghosts(k, positions);
+		this.listPGhost.set(k, positions);
+	}
+
+	/**
+	 * set the only possible position of a ghost and keep the key of the state up to date
+	 * @param k Id of the ghost
+	 * @param pos the position of the ghost
+	 */
+	private void setGhostPosition(int k, Position pos) {
+		this.setGhostPositions(k, GhostPositions.of(this.level.taille, pos));
+	}
+
+	/**
+	 * return the key of the state, two states that are equal according to compareTo share the same key
+	 * @return the 64 bits Zobrist key of the state
+	 */
+	public long getHashKey() {
+		return this.hash ^ Zobrist.status(this.score, this.life);
 	}
 
 	/**
@@ -300,15 +572,15 @@ public class BeliefState implements Comparable{
 		BeliefState stateRemoved = null;
 		ArrayList<BeliefState> listAlternativeBeliefState = new ArrayList<BeliefState>();
 		BeliefState currentBeliefState = null;
-		char currentPos = this.map[this.pacmanPos.x][this.pacmanPos.y];
+		char currentPos = this.getMap(this.pacmanPos.x, this.pacmanPos.y);
 		switch(toward.charAt(0)) {
 		case 'U': if(pacmanPos.x > 0) {
-			char nextPos = this.map[this.pacmanPos.x - 1][this.pacmanPos.y];
+			char nextPos = this.getMap(this.pacmanPos.x - 1, this.pacmanPos.y);
 			if(nextPos != '#') {
 				currentBeliefState = this.move(-1, 0, nextPos, 'U');
 				if(nextPos == '*') {
 					for(int i = 0; i < currentBeliefState.compteurPeur.size(); i++) {
-						currentBeliefState.compteurPeur.set(i, Ghost.TIME_PEUR);
+						currentBeliefState.setCompteurPeur(i, Ghost.TIME_PEUR);
 					}
 				}
 			}
@@ -318,13 +590,13 @@ public class BeliefState implements Comparable{
 		} else {
 			currentBeliefState = this.move(0, 0, currentPos, 'U');
 		} break;
-		case 'D': if(this.pacmanPos.x + 1 < this.map.length) {
-			char nextPos = this.map[this.pacmanPos.x + 1][this.pacmanPos.y];
+		case 'D': if(this.pacmanPos.x + 1 < this.level.taille) {
+			char nextPos = this.getMap(this.pacmanPos.x + 1, this.pacmanPos.y);
 			if(nextPos != '#') {
 				currentBeliefState = this.move(1, 0, nextPos, 'D');
 				if(nextPos == '*') {
 					for(int i = 0; i < currentBeliefState.compteurPeur.size(); i++) {
-						currentBeliefState.compteurPeur.set(i, Ghost.TIME_PEUR);
+						currentBeliefState.setCompteurPeur(i, Ghost.TIME_PEUR);
 					}
 				}
 			}
@@ -336,12 +608,12 @@ public class BeliefState implements Comparable{
 			currentBeliefState = this.move(0, 0, currentPos, 'D');
 		} break;
 		case 'L': if(this.pacmanPos.y > 0) {
-			char nextPos = this.map[this.pacmanPos.x][this.pacmanPos.y - 1];
+			char nextPos = this.getMap(this.pacmanPos.x, this.pacmanPos.y - 1);
 			if(nextPos != '#') {
 				currentBeliefState = this.move(0, -1, nextPos, 'L');
 				if(nextPos == '*') {
 					for(int i = 0; i < currentBeliefState.compteurPeur.size(); i++) {
-						currentBeliefState.compteurPeur.set(i, Ghost.TIME_PEUR);
+						currentBeliefState.setCompteurPeur(i, Ghost.TIME_PEUR);
 					}
 				}
 			}
@@ -352,13 +624,13 @@ public class BeliefState implements Comparable{
 		else{
 			currentBeliefState = this.move(0, 0, currentPos, 'L');
 		} break;
-		case 'R': if(this.pacmanPos.y + 1 < this.map[0].length) {
-			char nextPos = this.map[this.pacmanPos.x][this.pacmanPos.y + 1];
+		case 'R': if(this.pacmanPos.y + 1 < this.level.taille) {
+			char nextPos = this.getMap(this.pacmanPos.x, this.pacmanPos.y + 1);
 			if(nextPos != '#') {
 				currentBeliefState = this.move(0, 1, nextPos, 'R');
 				if(nextPos == '*') {
 					for(int i = 0; i < currentBeliefState.compteurPeur.size(); i++) {
-						currentBeliefState.compteurPeur.set(i, Ghost.TIME_PEUR);
+						currentBeliefState.setCompteurPeur(i, Ghost.TIME_PEUR);
 					}
 				}
 			}
@@ -373,7 +645,7 @@ public class BeliefState implements Comparable{
 
 		boolean dead = false;
 		int l = 0;
-		for(TreeSet<Position> treeSet: this.listPGhost) {//test pour chaque ghost si il se trouve sur la case de PacMan et qu'il n'a pas peur (en gros PacMan mort)
+		for(GhostPositions treeSet: this.listPGhost) {//test pour chaque ghost si il se trouve sur la case de PacMan et qu'il n'a pas peur (en gros PacMan mort)
 			if(currentBeliefState.compteurPeur.get(l++) == 0 && treeSet.size() == 1) {//ghost n'a pas peur et une seule position possible
 				Position pos = treeSet.first();
 				if(pos.x == currentBeliefState.pacmanPos.x && pos.y == currentBeliefState.pacmanPos.y) {//si le PacMan s'est deplace a la place du ghost
@@ -383,10 +655,12 @@ public class BeliefState implements Comparable{
 			}
 		}
 		if(dead) {
-			listAlternativeBeliefState.add(new BeliefState(currentBeliefState, true));//ajoute un etat ou PacMan est mort
+			listAlternativeBeliefState.add(currentBeliefState.localCopy(true));//ajoute un etat ou PacMan est mort
 		}
 		else {
 			listAlternativeBeliefState.add(currentBeliefState);
+			if(this.level.ghostMoves == null)
+				this.buildGhostTables();
 			for(int k = 0; k < currentBeliefState.compteurPeur.size(); k++) {//pour chaque fantome
 				ArrayList<BeliefState> tempListAlternativeBeliefState = new ArrayList<BeliefState>();
 
@@ -394,18 +668,26 @@ public class BeliefState implements Comparable{
 					BeliefState state = listAlternativeBeliefState.get(indexBeliefState); 
 					int compteurPeur = state.compteurPeur.get(k);
 					if (compteurPeur > 0) {//decremente le compteur de peur
-						state.compteurPeur.set(k, compteurPeur - 2);
+						state.setCompteurPeur(k, compteurPeur - 2);
 					}
-					TreeSet<Position> posGhost = state.listPGhost.get(k), newPosGhost = new TreeSet<Position>();
-					Iterator<Position> itPos = posGhost.iterator();
+					// The positions from which the ghost cannot meet or be seen by Pacman are moved all at once,
+					// only the others are examined one by one below, in the same order as before
+					long[] posGhost = new long[GhostPositions.words(this.level.taille)];
+					state.listPGhost.get(k).addTo(posGhost);
+					long[] interacting = this.interactingGhosts(posGhost, compteurPeur == 0, this.pacmanPos, state.pacmanPos);
+					for(int i = 0; i < posGhost.length; i++) {
+						posGhost[i] &= ~interacting[i];
+					}
+					GhostPositions newPosGhost = new GhostPositions(this.level.taille, this.moveGhosts(posGhost));
+					Iterator<Position> itPos = new GhostPositions(this.level.taille, interacting).iterator();
 					HashSet<String> hAlternativePos = new HashSet<String>();
 					while(itPos.hasNext()) {//pour chauqe position possible du ghost
 						Position posG = itPos.next();
 						boolean haveMoved = false;
-						if(BeliefState.isVisible(posG.x, posG.y, this.pacmanPos.x, this.pacmanPos.y) && compteurPeur == 0) {//si le ghost est visible et n'est pas effraye
+						if(this.isVisible(posG.x, posG.y, this.pacmanPos.x, this.pacmanPos.y) && compteurPeur == 0) {//si le ghost est visible et n'est pas effraye
 							/*if(posGhost.size() > 1) {
 								Position newPos = posG.clone();
-								BeliefState actualBeliefState = new BeliefState(state, false);
+								BeliefState actualBeliefState = state.localCopy(false);
 								actualBeliefState.listPGhost.get(k).clear();
 								boolean isDead = false;
 								if(newPos.x > state.pacmanPos.x) {
@@ -442,7 +724,7 @@ public class BeliefState implements Comparable{
 								}
 								if(isDead) {
 									if(stateRemoved == null)
-										stateRemoved = new BeliefState(actualBeliefState, true);
+										stateRemoved = actualBeliefState.localCopy(true);
 								}
 								else {
 									actualBeliefState.listPGhost.get(k).add( newPos.clone());
@@ -476,7 +758,7 @@ public class BeliefState implements Comparable{
 								}
 								if(newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) {//si apres deplacement le ghost se trouve sur la meme case que Pacman
 									if(stateRemoved == null)
-										stateRemoved = new BeliefState(state, true);//cree un etat ou Pacman est mort
+										stateRemoved = state.localCopy(true);//cree un etat ou Pacman est mort
 								}
 								else{
 									newPosGhost.add(newPos);
@@ -487,19 +769,19 @@ public class BeliefState implements Comparable{
 						else {//si le ghost n'est pas visible ou qu'il a peur
 							ArrayList<Position> caseAround =  new ArrayList<Position>();//on regarde quelles sont les mouvement possibles pour le ghost
 							boolean rightAvailable = false, leftAvailable = false, upAvailable = false, downAvailable = false;
-							if(posG.x > 0 && state.map[posG.x - 1][posG.y] != '#') {
+							if(posG.x > 0 && !state.isWall(posG.x - 1, posG.y)) {
 								caseAround.add(new Position(posG.x - 1, posG.y, 'U'));
 								upAvailable = true;
 							}
-							if(posG.x + 1 < state.map.length && state.map[posG.x + 1][posG.y] != '#') {
+							if(posG.x + 1 < this.level.taille && !state.isWall(posG.x + 1, posG.y)) {
 								caseAround.add(new Position(posG.x + 1, posG.y, 'D'));
 								downAvailable = true;
 							}
-							if(posG.y > 0 && state.map[posG.x][posG.y - 1] != '#') {
+							if(posG.y > 0 && !state.isWall(posG.x, posG.y - 1)) {
 								caseAround.add(new Position(posG.x, posG.y - 1, 'L'));
 								leftAvailable = true;
 							}
-							if(posG.y + 1 < state.map[0].length && state.map[posG.x][posG.y + 1] != '#') {
+							if(posG.y + 1 < this.level.taille && !state.isWall(posG.x, posG.y + 1)) {
 								caseAround.add(new Position(posG.x, posG.y + 1, 'R'));
 								rightAvailable = true;
 							}
@@ -514,14 +796,13 @@ public class BeliefState implements Comparable{
 										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
 											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
 												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
+													stateRemoved = state.localCopy(true);
 											}
 											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
+												newPos = new Position(this.level.listPGhostInit.get(k)[1] / this.level.tailleCase, this.level.listPGhostInit.get(k)[0] / this.level.tailleCase,'U');
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setCompteurPeur(k, 0);
+												actualBeliefState.setGhostPosition(k, newPos);
 												actualBeliefState.score += Ghost.SCORE_FANTOME;
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
@@ -530,10 +811,9 @@ public class BeliefState implements Comparable{
 											}
 										}
 										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
+											if(this.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setGhostPosition(k, newPos);
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
 													hAlternativePos.add(newPos.toString());
@@ -550,14 +830,13 @@ public class BeliefState implements Comparable{
 										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
 											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
 												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
+													stateRemoved = state.localCopy(true);
 											}
 											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
+												newPos = new Position(this.level.listPGhostInit.get(k)[1] / this.level.tailleCase, this.level.listPGhostInit.get(k)[0] / this.level.tailleCase,'U');
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setCompteurPeur(k, 0);
+												actualBeliefState.setGhostPosition(k, newPos);
 												actualBeliefState.score += Ghost.SCORE_FANTOME;
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
@@ -566,10 +845,9 @@ public class BeliefState implements Comparable{
 											}
 										}
 										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
+											if(this.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setGhostPosition(k, newPos);
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
 													hAlternativePos.add(newPos.toString());
@@ -592,14 +870,13 @@ public class BeliefState implements Comparable{
 										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
 											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
 												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
+													stateRemoved = state.localCopy(true);
 											}
 											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
+												newPos = new Position(this.level.listPGhostInit.get(k)[1] / this.level.tailleCase, this.level.listPGhostInit.get(k)[0] / this.level.tailleCase,'U');
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setCompteurPeur(k, 0);
+												actualBeliefState.setGhostPosition(k, newPos);
 												actualBeliefState.score += Ghost.SCORE_FANTOME;
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
@@ -608,10 +885,9 @@ public class BeliefState implements Comparable{
 											}
 										}
 										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
+											if(this.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setGhostPosition(k, newPos);
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
 													hAlternativePos.add(newPos.toString());
@@ -628,14 +904,13 @@ public class BeliefState implements Comparable{
 										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
 											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
 												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
+													stateRemoved = state.localCopy(true);
 											}
 											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
+												newPos = new Position(this.level.listPGhostInit.get(k)[1] / this.level.tailleCase, this.level.listPGhostInit.get(k)[0] / this.level.tailleCase,'U');
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setCompteurPeur(k, 0);
+												actualBeliefState.setGhostPosition(k, newPos);
 												actualBeliefState.score += Ghost.SCORE_FANTOME;
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
@@ -644,10 +919,9 @@ public class BeliefState implements Comparable{
 											}
 										}
 										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
+											if(this.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setGhostPosition(k, newPos);
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
 													hAlternativePos.add(newPos.toString());
@@ -671,14 +945,13 @@ public class BeliefState implements Comparable{
 										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
 											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
 												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
+													stateRemoved = state.localCopy(true);
 											}
 											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
+												newPos = new Position(this.level.listPGhostInit.get(k)[1] / this.level.tailleCase, this.level.listPGhostInit.get(k)[0] / this.level.tailleCase,'U');
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setCompteurPeur(k, 0);
+												actualBeliefState.setGhostPosition(k, newPos);
 												actualBeliefState.score += Ghost.SCORE_FANTOME;
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
@@ -687,10 +960,9 @@ public class BeliefState implements Comparable{
 											}
 										}
 										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
+											if(this.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setGhostPosition(k, newPos);
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
 													hAlternativePos.add(newPos.toString());
@@ -707,14 +979,13 @@ public class BeliefState implements Comparable{
 										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
 											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
 												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
+													stateRemoved = state.localCopy(true);
 											}
 											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
+												newPos = new Position(this.level.listPGhostInit.get(k)[1] / this.level.tailleCase, this.level.listPGhostInit.get(k)[0] / this.level.tailleCase,'U');
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setCompteurPeur(k, 0);
+												actualBeliefState.setGhostPosition(k, newPos);
 												actualBeliefState.score += Ghost.SCORE_FANTOME;
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
@@ -723,10 +994,9 @@ public class BeliefState implements Comparable{
 											}
 										}
 										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
+											if(this.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setGhostPosition(k, newPos);
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
 													hAlternativePos.add(newPos.toString());
@@ -749,14 +1019,13 @@ public class BeliefState implements Comparable{
 										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
 											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
 												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
+													stateRemoved = state.localCopy(true);
 											}
 											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
+												newPos = new Position(this.level.listPGhostInit.get(k)[1] / this.level.tailleCase, this.level.listPGhostInit.get(k)[0] / this.level.tailleCase,'U');
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setCompteurPeur(k, 0);
+												actualBeliefState.setGhostPosition(k, newPos);
 												actualBeliefState.score += Ghost.SCORE_FANTOME;
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
@@ -765,10 +1034,9 @@ public class BeliefState implements Comparable{
 											}
 										}
 										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
+											if(this.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setGhostPosition(k, newPos);
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
 													hAlternativePos.add(newPos.toString());
@@ -785,14 +1053,13 @@ public class BeliefState implements Comparable{
 										if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
 											if(compteurPeur == 0) {//si le ghost n'etait pas dans un etat de peur alors Pacman est mort
 												if(stateRemoved == null)
-													stateRemoved = new BeliefState(state, true);
+													stateRemoved = state.localCopy(true);
 											}
 											else {//si le ghost etait dans un etat de peur alors il a ete mange
-												newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.compteurPeur.set(k, 0);
-												actualBeliefState.listPGhost.get(k).add(newPos);
+												newPos = new Position(this.level.listPGhostInit.get(k)[1] / this.level.tailleCase, this.level.listPGhostInit.get(k)[0] / this.level.tailleCase,'U');
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setCompteurPeur(k, 0);
+												actualBeliefState.setGhostPosition(k, newPos);
 												actualBeliefState.score += Ghost.SCORE_FANTOME;
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
@@ -801,10 +1068,9 @@ public class BeliefState implements Comparable{
 											}
 										}
 										else {
-											if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-												BeliefState actualBeliefState = new BeliefState(state, false);
-												actualBeliefState.listPGhost.get(k).clear();
-												actualBeliefState.listPGhost.get(k).add(newPos);
+											if(this.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
+												BeliefState actualBeliefState = state.localCopy(false);
+												actualBeliefState.setGhostPosition(k, newPos);
 												if(!hAlternativePos.contains(newPos.toString())) {
 													tempListAlternativeBeliefState.add(actualBeliefState);
 													hAlternativePos.add(newPos.toString());
@@ -830,11 +1096,10 @@ public class BeliefState implements Comparable{
 							}
 							if(compteurPeur > 0) {//si le ghost est en etat de peur
 								if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//si il se trouve sur la meme case que Pacman ou si ils se sont croises
-									newPos = new Position(BeliefState.listPGhostInit.get(k)[1] / BeliefState.tailleCase, BeliefState.listPGhostInit.get(k)[0] / BeliefState.tailleCase,'U');//le ghost a ete mange
-									BeliefState actualBeliefState = new BeliefState(state, false);
-									actualBeliefState.listPGhost.get(k).clear();
-									actualBeliefState.compteurPeur.set(k, 0);
-									actualBeliefState.listPGhost.get(k).add(newPos);
+									newPos = new Position(this.level.listPGhostInit.get(k)[1] / this.level.tailleCase, this.level.listPGhostInit.get(k)[0] / this.level.tailleCase,'U');//le ghost a ete mange
+									BeliefState actualBeliefState = state.localCopy(false);
+									actualBeliefState.setCompteurPeur(k, 0);
+									actualBeliefState.setGhostPosition(k, newPos);
 									actualBeliefState.score += Ghost.SCORE_FANTOME;
 									if(!hAlternativePos.contains(newPos.toString())) {
 										tempListAlternativeBeliefState.add(actualBeliefState);
@@ -842,10 +1107,9 @@ public class BeliefState implements Comparable{
 									}
 								}
 								else {
-									if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-										BeliefState actualBeliefState = new BeliefState(state, false);
-										actualBeliefState.listPGhost.get(k).clear();
-										actualBeliefState.listPGhost.get(k).add(newPos);
+									if(this.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
+										BeliefState actualBeliefState = state.localCopy(false);
+										actualBeliefState.setGhostPosition(k, newPos);
 										if(!hAlternativePos.contains(newPos.toString())) {
 											tempListAlternativeBeliefState.add(actualBeliefState);
 											hAlternativePos.add(newPos.toString());
@@ -859,13 +1123,12 @@ public class BeliefState implements Comparable{
 							else {
 								if((newPos.x == state.pacmanPos.x && newPos.y == state.pacmanPos.y) || (posG.x == state.pacmanPos.x && posG.y == state.pacmanPos.y && newPos.x == this.pacmanPos.x && newPos.y == this.pacmanPos.y)) {//soit le ghost se retrouve sur la case du Pacman, soit le ghost et le Pacman se sont croises
 									if(stateRemoved == null)
-										stateRemoved = new BeliefState(state, true);
+										stateRemoved = state.localCopy(true);
 								}
 								else {
-									if(BeliefState.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
-										BeliefState actualBeliefState = new BeliefState(state, false);
-										actualBeliefState.listPGhost.get(k).clear();
-										actualBeliefState.listPGhost.get(k).add(newPos);
+									if(this.isVisible(newPos.x, newPos.y, state.pacmanPos.x, state.pacmanPos.y)) {
+										BeliefState actualBeliefState = state.localCopy(false);
+										actualBeliefState.setGhostPosition(k, newPos);
 										if(!hAlternativePos.contains(newPos.toString())) {
 											tempListAlternativeBeliefState.add(actualBeliefState);
 											hAlternativePos.add(newPos.toString());
@@ -882,7 +1145,7 @@ public class BeliefState implements Comparable{
 						listAlternativeBeliefState.remove(indexBeliefState--);
 					}
 					else {
-						state.listPGhost.set(k, newPosGhost);
+						state.setGhostPositions(k, newPosGhost);
 					}
 				}
 				listAlternativeBeliefState.addAll(tempListAlternativeBeliefState);
@@ -891,6 +1154,9 @@ public class BeliefState implements Comparable{
 				listAlternativeBeliefState.add(stateRemoved);
 			}
 		}
+		for(BeliefState state: listAlternativeBeliefState) {
+			state.share();
+		}
 		return new Result(listAlternativeBeliefState);
 	}
 
@@ -904,7 +1170,7 @@ public class BeliefState implements Comparable{
 			return plans;
 		ArrayList<String> listNull = new ArrayList<String>();
 		if(pacmanPos.x > 0) {
-			char nextPos = this.map[this.pacmanPos.x - 1][this.pacmanPos.y];
+			char nextPos = this.getMap(this.pacmanPos.x - 1, this.pacmanPos.y);
 			if(nextPos != '#') {
 				ArrayList<String> listUp = new ArrayList<String>();
 				listUp.add(PacManLauncher.UP);
@@ -914,8 +1180,8 @@ public class BeliefState implements Comparable{
 				listNull.add(PacManLauncher.UP);
 			}
 		}
-		if(this.pacmanPos.x + 1 < this.map.length) {
-			char nextPos = this.map[this.pacmanPos.x + 1][this.pacmanPos.y];
+		if(this.pacmanPos.x + 1 < this.level.taille) {
+			char nextPos = this.getMap(this.pacmanPos.x + 1, this.pacmanPos.y);
 			if(nextPos != '#') {
 				ArrayList<String> listDown = new ArrayList<String>();
 				listDown.add(PacManLauncher.DOWN);
@@ -926,7 +1192,7 @@ public class BeliefState implements Comparable{
 			}
 		}
 		if(this.pacmanPos.y > 0) {
-			char nextPos = this.map[this.pacmanPos.x][this.pacmanPos.y - 1];
+			char nextPos = this.getMap(this.pacmanPos.x, this.pacmanPos.y - 1);
 			if(nextPos != '#') {
 				ArrayList<String> listLeft = new ArrayList<String>();
 				listLeft.add(PacManLauncher.LEFT);
@@ -936,8 +1202,8 @@ public class BeliefState implements Comparable{
 				listNull.add(PacManLauncher.LEFT);
 			}
 		}
-		if(this.pacmanPos.y + 1 < this.map[0].length) {
-			char nextPos = this.map[this.pacmanPos.x][this.pacmanPos.y + 1];
+		if(this.pacmanPos.y + 1 < this.level.taille) {
+			char nextPos = this.getMap(this.pacmanPos.x, this.pacmanPos.y + 1);
 			if(nextPos != '#') {
 				ArrayList<String> listRight = new ArrayList<String>();
 				listRight.add(PacManLauncher.RIGHT);
@@ -952,6 +1218,73 @@ public class BeliefState implements Comparable{
 		return plans;
 	}
 
+	/**
+	 * create all possible states resulting from an action of Pacman in any of a list of states, each state being given once:
+	 * the states are extended in parallel when there are at least parallel_update of them, then the results that have the same key are merged
+	 * @param listBeliefState list of states, which is not modified
+	 * @param toward the action performed by Pacman (PacManLauncher.UP/DOWN/LEFT/RIGHT)
+	 * @param context search state of the game, whose last search may already have extended one of the states
+	 * @return the new list of states, in the order of the states they come from
+	 */
+	public static ArrayList<BeliefState> extendsBeliefStates(ArrayList<BeliefState> listBeliefState, String toward, SearchContext context) {
+		ArrayList<Result> results = new ArrayList<Result>();
+		if(listBeliefState.size() >= BeliefState.parallel_update) {
+			ArrayList<ForkJoinTask<Result>> tasks = new ArrayList<ForkJoinTask<Result>>();
+			for(BeliefState state: listBeliefState) {
+				tasks.add(ForkJoinTask.adapt(() -> context.extendsBeliefState(state, toward)));
+			}
+			for(ForkJoinTask<Result> task: ForkJoinTask.invokeAll(tasks)) {
+				results.add(task.join());
+			}
+		}
+		else {
+			for(BeliefState state: listBeliefState) {
+				results.add(context.extendsBeliefState(state, toward));
+			}
+		}
+		ArrayList<BeliefState> extended = new ArrayList<BeliefState>();
+		HashSet<Long> keys = new HashSet<Long>();
+		for(Result result: results) {
+			for(BeliefState state: result.getBeliefStates()) {
+				if(keys.add(state.getHashKey()))
+					extended.add(state);
+			}
+		}
+		return extended;
+	}
+
+	/**
+	 * remove from a list of states, in a single pass, all the states where a ghost is not (possibly) at its actual position
+	 * @param listBeliefState list of state to be updated
+	 * @param posGhosts actual position of each ghost
+	 */
+	public static void filter(ArrayList<BeliefState> listBeliefState, ArrayList<Position> posGhosts) {
+		boolean kept = false;
+		for(BeliefState state: listBeliefState) {
+			if(state.isPossible(posGhosts)) {
+				kept = true;
+				break;
+			}
+		}
+		if(kept) {
+			listBeliefState.removeIf(state -> !state.isPossible(posGhosts));
+		}
+		else {// no state is possible, the ghosts are filtered one after the other as the states cannot all be removed
+			for(int k = 0; k < posGhosts.size(); k++) {
+				BeliefState.filter(listBeliefState, k, posGhosts.get(k));
+			}
+		}
+	}
+
+	// true if every ghost may be at its actual position in the state
+	private boolean isPossible(ArrayList<Position> posGhosts) {
+		for(int k = 0; k < posGhosts.size(); k++) {
+			if(!this.listPGhost.get(k).contains(posGhosts.get(k)))
+				return false;
+		}
+		return true;
+	}
+
 	/**
 	 * remove from a list of states all the states where a given ghost is not (possibly) at a given position provided as input
 	 * @param listBeliefState list of state to be updated
@@ -959,17 +1292,10 @@ public class BeliefState implements Comparable{
 	 * @param posG actual position of the ghost
 	 */
 	public static void filter(ArrayList<BeliefState> listBeliefState, int gId, Position posG) {
-		ArrayList<BeliefState> copy = (ArrayList<BeliefState>)listBeliefState.clone();
-		for(int i = 0; i < listBeliefState.size(); i++) {
-			BeliefState state = listBeliefState.get(i);
-			if(!state.listPGhost.get(gId).contains(posG)) {
-				if(listBeliefState.size() == 1)
-					System.out.println("problem");
-				else {
-					listBeliefState.remove(i);
-					i--;
-				}
-			}
+		// the list is never emptied: its last state is kept even if the ghost cannot be at its position in it
+		for(int i = 0; i < listBeliefState.size() && listBeliefState.size() > 1; i++) {
+			if(!listBeliefState.get(i).listPGhost.get(gId).contains(posG))
+				listBeliefState.remove(i--);
 		}
 	}
 
@@ -983,27 +1309,16 @@ public class BeliefState implements Comparable{
 	 */
 	public BeliefState move(int i, int j, char nextPos, char move) {
 		BeliefState nextBeliefState = new BeliefState(this, false);
-		if(nextBeliefState.map[nextBeliefState.pacmanPos.x][nextBeliefState.pacmanPos.y] == 'B')
-			nextBeliefState.map[nextBeliefState.pacmanPos.x][nextBeliefState.pacmanPos.y] = 'F';
-		else
-			nextBeliefState.map[nextBeliefState.pacmanPos.x][nextBeliefState.pacmanPos.y] = 'O';
-		nextBeliefState.pacmanPos.x += i;
-		nextBeliefState.pacmanPos.y += j;
-		nextBeliefState.pacmanPos.dir = move;
+		nextBeliefState.setPacmanPos(nextBeliefState.pacmanPos.x + i, nextBeliefState.pacmanPos.y + j, move);
 		if(nextPos == '*' || nextPos == '.') {
-			nextBeliefState.nbrOfGommes--;
+			nextBeliefState.removeGum(nextBeliefState.pacmanPos.x, nextBeliefState.pacmanPos.y);
 			nextBeliefState.score += Gomme.SCORE_GOMME;
 			if(nextPos == '*') {
-				nextBeliefState.nbrOfSuperGommes--;
 				for(int k = 0; k < nextBeliefState.compteurPeur.size(); k++) {
-					nextBeliefState.compteurPeur.set(k, Ghost.TIME_PEUR);
+					nextBeliefState.setCompteurPeur(k, Ghost.TIME_PEUR);
 				}
 			}
 		}
-		if(nextBeliefState.map[nextBeliefState.pacmanPos.x][nextBeliefState.pacmanPos.y] == 'F')
-			nextBeliefState.map[nextBeliefState.pacmanPos.x][nextBeliefState.pacmanPos.y] = 'B';
-		else
-			nextBeliefState.map[nextBeliefState.pacmanPos.x][nextBeliefState.pacmanPos.y] = 'P';
 		nextBeliefState.pacmanOldPos = this.pacmanPos.clone();
 		return nextBeliefState;
 	}
@@ -1017,31 +1332,20 @@ public class BeliefState implements Comparable{
 	 */
 	public boolean move(int i, int j, char move) {
 		this.pacmanOldPos = this.pacmanPos.clone();
-		if(this.map[this.pacmanPos.x + i][this.pacmanPos.y + j] != '#') {
-			if(this.map[this.pacmanPos.x][this.pacmanPos.y] == 'B')
-				this.map[this.pacmanPos.x][this.pacmanPos.y] = 'F';
-			else
-				this.map[this.pacmanPos.x][this.pacmanPos.y] = 'O';
-			this.pacmanPos.x += i;
-			this.pacmanPos.y += j;
-			this.pacmanPos.dir = move;
+		if(!this.isWall(this.pacmanPos.x + i, this.pacmanPos.y + j)) {
 			int l = 0;
-			char nextPos = this.map[this.pacmanPos.x][this.pacmanPos.y];
-			if(nextPos != 'O' && nextPos != 'F') {
-				this.nbrOfGommes--;
+			char nextPos = this.getMap(this.pacmanPos.x + i, this.pacmanPos.y + j);
+			this.setPacmanPos(this.pacmanPos.x + i, this.pacmanPos.y + j, move);
+			if(nextPos == '*' || nextPos == '.') {
+				this.removeGum(this.pacmanPos.x, this.pacmanPos.y);
 				this.score += Gomme.SCORE_GOMME;
 				if(nextPos == '*') {
-					this.nbrOfSuperGommes--;
 					for(int k = 0; k < this.compteurPeur.size(); k++) {
-						this.compteurPeur.set(k, Ghost.TIME_PEUR);
+						this.setCompteurPeur(k, Ghost.TIME_PEUR);
 					}
 				}
 			}
-			if(nextPos == 'F')
-				this.map[this.pacmanPos.x][this.pacmanPos.y] = 'B';
-			else
-				this.map[this.pacmanPos.x][this.pacmanPos.y] = 'P';
-			for(TreeSet<Position> treeSet: this.listPGhost) {
+			for(GhostPositions treeSet: this.listPGhost) {
 				if(this.compteurPeur.get(l++) == 0 && treeSet.size() == 1) {
 					Position pos = treeSet.first();
 					if(pos.x == this.pacmanPos.x && pos.y == this.pacmanPos.y) {
@@ -1051,7 +1355,7 @@ public class BeliefState implements Comparable{
 			}
 		}
 		else {
-			this.pacmanPos.dir = move;
+			this.setPacmanPos(this.pacmanPos.x, this.pacmanPos.y, move);
 		}
 		return false;
 	}
@@ -1063,17 +1367,7 @@ public class BeliefState implements Comparable{
 	 * @param move direction of the pacman
 	 */
 	public void moveTo(int i, int j, char move) {
-		if(this.map[this.pacmanPos.x][this.pacmanPos.y] == 'B')
-			this.map[this.pacmanPos.x][this.pacmanPos.y] = 'F';
-		else
-			this.map[this.pacmanPos.x][this.pacmanPos.y] = 'O';
-		this.pacmanPos.x = i;
-		this.pacmanPos.y = j;
-		this.pacmanPos.dir = move;
-		if(this.map[this.pacmanPos.x][this.pacmanPos.y] == 'F')
-			this.map[this.pacmanPos.x][this.pacmanPos.y] = 'B';
-		else
-			this.map[this.pacmanPos.x][this.pacmanPos.y] = 'P';
+		this.setPacmanPos(i, j, move);
 		this.pacmanOldPos = this.pacmanPos.clone();
 	}
 
@@ -1098,34 +1392,26 @@ public class BeliefState implements Comparable{
 		}
 		if(compteurPeur > 0) {//si le ghost est en etat de peur
 			if((posGhost.x + i == this.pacmanPos.x && posGhost.y + j == this.pacmanPos.y) || (posGhost.x == this.pacmanPos.x && posGhost.y == this.pacmanPos.y && posPcopy.x == posGhost.x + i && posPcopy.y == posGhost.y + j)) {//si le ghost et le Pacman se sont croise ou que le ghost va sur la case du Pacman
-				int[] initPosG = BeliefState.listPGhostInit.get(k);//le ghost est mange
-				this.moveGhostTo(initPosG[1] /  BeliefState.tailleCase, initPosG[0] / BeliefState.tailleCase, k, 'U');
+				int[] initPosG = this.level.listPGhostInit.get(k);//le ghost est mange
+				this.moveGhostTo(initPosG[1] /  this.level.tailleCase, initPosG[0] / this.level.tailleCase, k, 'U');
 				this.score += Ghost.SCORE_FANTOME;
 				return -1;
 			}			
-			this.compteurPeur.set(k, compteurPeur - 2);
-			this.listPGhost.get(k).clear();
-			posGhost.x += i;
-			posGhost.y += j;
-			posGhost.dir = dir;
-			this.listPGhost.get(k).add(posGhost);
+			this.setCompteurPeur(k, compteurPeur - 2);
+			this.setGhostPosition(k, new Position(posGhost.x + i, posGhost.y + j, dir));
 			return 0;
 		}
 		else {//si le ghost n'est pas en etat de peur
 			if((posGhost.x + i == this.pacmanPos.x && posGhost.y + j == this.pacmanPos.y) || (posGhost.x == this.pacmanPos.x && posGhost.y == this.pacmanPos.y && posPcopy.x == posGhost.x + i && posPcopy.y == posGhost.y + j)) {//si le ghost et le Pacman se sont croise ou que le ghost va sur la case du Pacman
 				this.life--;//alors Pacman meurt
-				this.moveTo(BeliefState.pacmanYInit / BeliefState.tailleCase, BeliefState.pacmanXInit / BeliefState.tailleCase, 'U');
-				for(int l = 0; l < BeliefState.listPGhostInit.size(); l++) {
-					int[] initPosG = BeliefState.listPGhostInit.get(l);
-					this.moveGhostTo(initPosG[1] / BeliefState.tailleCase, initPosG[0] / BeliefState.tailleCase, l, 'U');
+				this.moveTo(this.level.pacmanYInit / this.level.tailleCase, this.level.pacmanXInit / this.level.tailleCase, 'U');
+				for(int l = 0; l < this.level.listPGhostInit.size(); l++) {
+					int[] initPosG = this.level.listPGhostInit.get(l);
+					this.moveGhostTo(initPosG[1] / this.level.tailleCase, initPosG[0] / this.level.tailleCase, l, 'U');
 				}
 				return 1;
 			}
-			this.listPGhost.get(k).clear();
-			posGhost.x += i;
-			posGhost.y += j;
-			posGhost.dir = dir;
-			this.listPGhost.get(k).add(posGhost);
+			this.setGhostPosition(k, new Position(posGhost.x + i, posGhost.y + j, dir));
 			return 0;
 		}
 	}
@@ -1138,20 +1424,15 @@ public class BeliefState implements Comparable{
 	 * @param dir direction followed by the ghost ('U', 'D', 'L', 'R')
 	 */
 	public void moveGhostTo(int i, int j, int k, char dir) {
-		Position posGhost = this.listPGhost.get(k).first();
-		this.listPGhost.get(k).clear();
-		posGhost.x = i;
-		posGhost.y = j;
-		this.compteurPeur.set(k, 0);
-		posGhost.dir = dir;
-		this.listPGhost.get(k).add(/*posGhost.toString(),*/ posGhost);
+		this.setCompteurPeur(k, 0);
+		this.setGhostPosition(k, new Position(i, j, dir));
 	}
 
 	public String toString() {
 		String s = new String();
-		for(int i = 0; i < this.map.length; i++) {
-			for(int j = 0; j < this.map[0].length; j++) {
-				s += this.map[i][j];
+		for(int i = 0; i < this.level.taille; i++) {
+			for(int j = 0; j < this.level.taille; j++) {
+				s += this.getMap(i, j);
 			}
 			s += '\n';
 		}
@@ -1171,7 +1452,7 @@ public class BeliefState implements Comparable{
 	/*private static HashSet<String> visible;*/
 	
 	/*public void save(PrintStream out) {
-		out.println(BeliefState.taille);
+		out.println(this.level.taille);
 		for(int i = 0; i < this.map.length; i++) {
 			for(int j = 0; j < this.map[0].length; j++) {
 				out.print(this.map[i][j]);
@@ -1180,9 +1461,9 @@ public class BeliefState implements Comparable{
 		}
 		out.println(this.pacmanPos.x);
 		out.println(this.pacmanPos.y);
-		out.println(BeliefState.pacmanXInit);
-		out.println(BeliefState.pacmanYInit);
-		out.println(BeliefState.tailleCase);
+		out.println(this.level.pacmanXInit);
+		out.println(this.level.pacmanYInit);
+		out.println(this.level.tailleCase);
 		out.println(this.pacmanPos.dir);
 		out.println(this.score);
 		out.println(this.life);
@@ -1197,11 +1478,11 @@ public class BeliefState implements Comparable{
 				Position posG = itPos.next();
 				out.println(posG.x + " " + posG.y + " " + posG.dir);
 			}
-			int[] pos = this.listPGhostInit.get(i);
+			int[] pos = this.level.listPGhostInit.get(i);
 			out.println(pos[0] + " " + pos[1]);
 		}
-		out.println(BeliefState.gamePositions.size());
-		for(int[] pos:BeliefState.gamePositions) {
+		out.println(this.level.gamePositions.size());
+		for(int[] pos:this.level.gamePositions) {
 			out.println(pos[0] + " " + pos[1]);
 		}
 		for(String visiblePos: BeliefState.visible) {
@@ -1240,7 +1521,7 @@ public class BeliefState implements Comparable{
 	 * @return the number of remaining gums in the map
 	 */
 	public int getNbrOfGommes() {
-		return this.nbrOfGommes;
+		return BeliefState.count(this.gums) + BeliefState.count(this.superGums);
 	}
 	
 	/**
@@ -1248,7 +1529,7 @@ public class BeliefState implements Comparable{
 	 * @return the number of remaining super gums in the map
 	 */
 	public int getNbrOfSuperGommes() {
-		return this.nbrOfSuperGommes;
+		return BeliefState.count(this.superGums);
 	}
 	
 	/**
@@ -1263,12 +1544,53 @@ public class BeliefState implements Comparable{
 		return this.compteurPeur.get(i);
 	}
 	
+	/**
+	 * return the content of a square as in the files of the levels, Pacman being 'P', or 'B' on the initial square of a ghost
+	 * @param i row of the square
+	 * @param j column of the square
+	 * @return the content of the square ('#', '.', '*', 'O', 'P', 'F' or 'B')
+	 */
 	public char getMap(int i, int j) {
-		return this.map[i][j];
+		int cell = i * this.level.taille + j;
+		if(BeliefState.isSquare(this.level.walls, cell))
+			return '#';
+		boolean ghostSquare = BeliefState.isSquare(this.level.ghostSquares, cell);
+		if(i == this.pacmanPos.x && j == this.pacmanPos.y)
+			return ghostSquare ? 'B' : 'P';
+		char content = this.gumContent(cell);
+		return content == 'O' && ghostSquare ? 'F' : content;
 	}
-	
+
+	/**
+	 * return whether a square is a wall
+	 * @param i row of the square
+	 * @param j column of the square
+	 * @return true if the square is a wall
+	 */
+	public boolean isWall(int i, int j) {
+		return BeliefState.isSquare(this.level.walls, i * this.level.taille + j);
+	}
+
+	/**
+	 * return a copy of the whole map, built from the content of every square
+	 * @return the content of the squares, see getMap(int, int)
+	 */
 	public char[][] getMap(){
-		return this.map;
+		char[][] map = new char[this.level.taille][this.level.taille];
+		for(int i = 0; i < this.level.taille; i++) {
+			for(int j = 0; j < this.level.taille; j++) {
+				map[i][j] = this.getMap(i, j);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * return the number of rows (and columns) of the map
+	 * @return the size of the map
+	 */
+	public int getMapSize() {
+		return this.level.taille;
 	}
 	
 	public Position getPacmanPosition() {
@@ -1279,78 +1601,45 @@ public class BeliefState implements Comparable{
 		return this.pacmanOldPos;
 	}
 	
-	public TreeSet<Position> getGhostPositions(int i){
+	public GhostPositions getGhostPositions(int i){
 		return this.listPGhost.get(i);
 	}
-	public static boolean isVisible(int row1, int column1, int row2, int column2) {
-		//System.out.println("isVisible " + row1 + "," + column1 + ";" + row2 + "," + column2);
-		if(row1 == row2) {
-			//System.out.println("row " + row1 + " columns " + column1 + "," + column2);
-			return BeliefState.visible.contains(row1+","+Math.min(column1,column2)+";"+row2+","+Math.max(column1, column2));
-		}
-		if(column1 == column2) {
-			//System.out.println("column " + column1 + " rows " + row1 + "," + row2);
-			return BeliefState.visible.contains(Math.min(row1, row2)+","+column1+";"+Math.max(row1, row2)+","+column2);
-		}
-		return false;
+	public boolean isVisible(int row1, int column1, int row2, int column2) {
+		return this.level.isVisible(row1, column1, row2, column2);
 	}
 	
+	/**
+	 * return the length of the shortest path from Pacman to the nearest gum or super gum
+	 * @return the number of moves, Integer.MAX_VALUE if no gum can be reached
+	 */
 	public int distanceMinToGum() {
-		LinkedList<int[]> queue = new LinkedList<int[]>();
-		HashSet<String> visited = new HashSet<String>();
-		int[] posP = new int[3];
-		posP[0] = this.pacmanPos.x;
-		posP[1] = this.pacmanPos.y;
-		posP[2] = 0;
-		queue.add(posP);
-		while(!queue.isEmpty()) {
-			int[] next = queue.pollFirst();
-			visited.add(next[0] + "," + next[1]);
-			if(next[0] > 0) {
-				if(!visited.contains((next[0] - 1) + "," + next[1])) {
-					char content = this.map[next[0] - 1][next[1]];
-					switch(content) {
-					case '.':
-					case '*': return next[2] + 1;
-					case '#': break;
-					default: int[] neighbor = {next[0] - 1, next[1], next[2] + 1}; queue.add(neighbor);
-					}
-				}
-			}
-			if(next[0] < BeliefState.taille - 1) {
-				if(!visited.contains((next[0] + 1) + "," + next[1])) {
-					char content = this.map[next[0] + 1][next[1]];
-					switch(content) {
-					case '.':
-					case '*': return next[2] + 1;
-					case '#': break;
-					default: int[] neighbor = {next[0] + 1, next[1], next[2] + 1}; queue.add(neighbor);
-					}
-				}
-			}
-			if(next[1] > 0) {
-				if(!visited.contains(next[0] + "," + (next[1] - 1))) {
-					char content = this.map[next[0]][next[1] - 1];
-					switch(content) {
-					case '.':
-					case '*': return next[2] + 1;
-					case '#': break;
-					default: int[] neighbor = {next[0], next[1] - 1, next[2] + 1}; queue.add(neighbor);
-					}
-				}
-			}
-			if(next[1] < BeliefState.taille - 1) {
-				if(!visited.contains(next[0] + "," + (next[1] + 1))) {
-					char content = this.map[next[0]][next[1] + 1];
-					switch(content) {
-					case '.':
-					case '*': return next[2] + 1;
-					case '#': break;
-					default: int[] neighbor = {next[0], next[1] + 1, next[2] + 1}; queue.add(neighbor);
-					}
-				}
+		int pacman = this.pacmanPos.x * this.level.taille + this.pacmanPos.y;
+		int distance = this.gumField().distance(pacman);
+		if(distance > 0)
+			return distance == GumField.UNREACHABLE ? Integer.MAX_VALUE : distance;
+		// Pacman stands on a gum, the nearest other one is looked for
+		MazeDistances distances = this.level.distances(this);
+		int min = MazeDistances.UNREACHABLE;
+		for(int i = 0; i < this.gums.length; i++) {
+			for(long word = this.gums[i] | this.superGums[i]; word != 0; word &= word - 1) {
+				int other = distances.distance(pacman, (i << 6) + Long.numberOfTrailingZeros(word));
+				if(other > 0 && other < min)
+					min = other;
 			}
 		}
-		return Integer.MAX_VALUE;
+		return min == MazeDistances.UNREACHABLE ? Integer.MAX_VALUE : min;
+	}
+
+	/**
+	 * return the length of the shortest path between two squares of the level
+	 * @param x1 row of the first square
+	 * @param y1 column of the first square
+	 * @param x2 row of the second square
+	 * @param y2 column of the second square
+	 * @return the number of moves, Integer.MAX_VALUE if there is no path
+	 */
+	public int distance(int x1, int y1, int x2, int y2) {
+		int distance = this.level.distances(this).distance(x1 * this.level.taille + y1, x2 * this.level.taille + y2);
+		return distance == MazeDistances.UNREACHABLE ? Integer.MAX_VALUE : distance;
 	}
 }
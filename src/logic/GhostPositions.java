@@ -0,0 +1,239 @@
+package logic;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of the possible positions of a ghost, stored as a bitset over the (square, direction) pairs of the level.
+ * Position (x, y, dir) is the bit 4 * (x * size + y) + d, d being the rank of dir in DIRECTIONS, so that the bits are in the order of Position.compareTo.
+ * Only the words between the first and the last non empty ones are stored, a set of close positions takes a few longs.
+ * The positions are only created when the set is iterated. A set must not be modified once it is given to a belief state.
+ */
+final class GhostPositions implements Iterable<Position> {
+
+	/** directions of the ghosts in the order of their bits */
+	static final String DIRECTIONS = "DLRU";
+
+	private final int size;
+	private int base; // index of the first stored word
+	private long[] words;
+
+	/**
+	 * construct an empty set
+	 * @param size number of rows (and columns) of the level
+	 */
+	GhostPositions(int size) {
+		this.size = size;
+		this.base = 0;
+		this.words = new long[0];
+	}
+
+	/**
+	 * construct a set from a bitset covering the whole level
+	 * @param size number of rows (and columns) of the level
+	 * @param bits one bit per (square, direction) pair, see index
+	 */
+	GhostPositions(int size, long[] bits) {
+		this.size = size;
+		int first = 0, last = bits.length - 1;
+		while(first <= last && bits[first] == 0)
+			first++;
+		while(last >= first && bits[last] == 0)
+			last--;
+		this.base = first;
+		this.words = new long[last - first + 1];
+		System.arraycopy(bits, first, this.words, 0, this.words.length);
+	}
+
+	/**
+	 * construct a set holding a single position
+	 * @param size number of rows (and columns) of the level
+	 * @param pos the position
+	 * @return the set
+	 */
+	static GhostPositions of(int size, Position pos) {
+		GhostPositions positions = new GhostPositions(size);
+		positions.add(pos);
+		return positions;
+	}
+
+	/**
+	 * return the number of words of a bitset covering the whole level
+	 * @param size number of rows (and columns) of the level
+	 * @return the number of longs
+	 */
+	static int words(int size) {
+		return (4 * size * size + 63) >>> 6;
+	}
+
+	/**
+	 * return the bit of a position
+	 * @param size number of rows (and columns) of the level
+	 * @param x row
+	 * @param y column
+	 * @param dir direction ('U', 'D', 'L', 'R')
+	 * @return the index of the bit
+	 */
+	static int index(int size, int x, int y, char dir) {
+		return ((x * size + y) << 2) + DIRECTIONS.indexOf(dir);
+	}
+
+	/**
+	 * add a position to the set, which must not belong to a belief state yet
+	 * @param pos the position
+	 */
+	void add(Position pos) {
+		int index = GhostPositions.index(this.size, pos.x, pos.y, pos.dir);
+		int word = index >>> 6;
+		if(this.words.length == 0) {
+			this.base = word;
+			this.words = new long[1];
+		}
+		else if(word < this.base || word >= this.base + this.words.length) {
+			int first = Math.min(this.base, word), last = Math.max(this.base + this.words.length - 1, word);
+			long[] grown = new long[last - first + 1];
+			System.arraycopy(this.words, 0, grown, this.base - first, this.words.length);
+			this.base = first;
+			this.words = grown;
+		}
+		this.words[word - this.base] |= 1L << index;
+	}
+
+	/**
+	 * add every position of the set to a bitset covering the whole level
+	 * @param bits the bitset
+	 */
+	void addTo(long[] bits) {
+		for(int i = 0; i < this.words.length; i++) {
+			bits[this.base + i] |= this.words[i];
+		}
+	}
+
+	boolean contains(Position pos) {
+		return this.contains(GhostPositions.index(this.size, pos.x, pos.y, pos.dir));
+	}
+
+	private boolean contains(int index) {
+		int word = (index >>> 6) - this.base;
+		return word >= 0 && word < this.words.length && (this.words[word] & (1L << index)) != 0;
+	}
+
+	int size() {
+		int count = 0;
+		for(long word: this.words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	boolean isEmpty() {
+		return this.words.length == 0 || this.size() == 0;
+	}
+
+	/**
+	 * return the smallest position of the set
+	 * @return the first position according to Position.compareTo
+	 */
+	Position first() {
+		int index = this.next(0);
+		if(index < 0)
+			throw new NoSuchElementException();
+		return this.position(index);
+	}
+
+	/**
+	 * return the index of the first position of the set from a given index on
+	 * @param from the first index examined
+	 * @return the index of the position, -1 if there is none
+	 */
+	int next(int from) {
+		int word = Math.max(from >>> 6, this.base) - this.base;
+		if(word >= this.words.length)
+			return -1;
+		long remaining = this.words[word] & (from >>> 6 == word + this.base ? -1L << from : -1L);
+		while(remaining == 0) {
+			if(++word == this.words.length)
+				return -1;
+			remaining = this.words[word];
+		}
+		return ((word + this.base) << 6) + Long.numberOfTrailingZeros(remaining);
+	}
+
+	// index of the last position of the set up to a given index, -1 if there is none
+	private int previous(int from) {
+		int word = Math.min(from >>> 6, this.base + this.words.length - 1) - this.base;
+		if(word < 0)
+			return -1;
+		long remaining = this.words[word] & (from >>> 6 == word + this.base ? -1L >>> (63 - (from & 63)) : -1L);
+		while(remaining == 0) {
+			if(--word < 0)
+				return -1;
+			remaining = this.words[word];
+		}
+		return ((word + this.base) << 6) + 63 - Long.numberOfLeadingZeros(remaining);
+	}
+
+	/**
+	 * return the position of an index
+	 * @param index the index of a bit
+	 * @return the position of the ghost
+	 */
+	Position position(int index) {
+		return new Position(this.row(index), this.column(index), this.direction(index));
+	}
+
+	int row(int index) {
+		return (index >>> 2) / this.size;
+	}
+
+	int column(int index) {
+		return (index >>> 2) % this.size;
+	}
+
+	char direction(int index) {
+		return DIRECTIONS.charAt(index & 3);
+	}
+
+	/**
+	 * iterate over the positions in increasing order
+	 */
+	public Iterator<Position> iterator() {
+		return new Iterator<Position>() {
+			private int index = GhostPositions.this.next(0);
+
+			public boolean hasNext() {
+				return this.index >= 0;
+			}
+
+			public Position next() {
+				if(this.index < 0)
+					throw new NoSuchElementException();
+				Position pos = GhostPositions.this.position(this.index);
+				this.index = GhostPositions.this.next(this.index + 1);
+				return pos;
+			}
+		};
+	}
+
+	/**
+	 * iterate over the positions in decreasing order
+	 * @return the iterator
+	 */
+	Iterator<Position> descendingIterator() {
+		return new Iterator<Position>() {
+			private int index = GhostPositions.this.previous(((GhostPositions.this.base + GhostPositions.this.words.length) << 6) - 1);
+
+			public boolean hasNext() {
+				return this.index >= 0;
+			}
+
+			public Position next() {
+				if(this.index < 0)
+					throw new NoSuchElementException();
+				Position pos = GhostPositions.this.position(this.index);
+				this.index = this.index == 0 ? -1 : GhostPositions.this.previous(this.index - 1);
+				return pos;
+			}
+		};
+	}
+}
@@ -0,0 +1,196 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * Distance from every square of a level to the nearest gum or super gum of a belief state.
+ * The field of a belief state is shared with its copies as long as they keep the same gums. When Pacman eats a gum,
+ * the state gets a new field which only remembers the eaten gum and the previous field, and is only computed when it is read:
+ * the squares whose nearest gum was the eaten one are found and recomputed from their neighbours, the others keep their distance.
+ * A field is computed from scratch only for a state read without any field (in practice once per level and after modifyMap).
+ */
+final class GumField {
+
+	/** distance of a square from which no gum can be reached */
+	static final int UNREACHABLE = Short.MAX_VALUE;
+
+	private final int size;
+	private final long[] walls;
+	// read by compute, under the lock of the field, and set to null once the distances are known so that the previous fields can be collected
+	private volatile long[] gums; // squares of the gums of a field computed from scratch, null once computed
+	private volatile GumField parent; // field before the gum was eaten, null once computed
+	private final int eaten;
+	private volatile short[] distances;
+
+	/**
+	 * construct the field of a set of gums, which must not be modified afterwards
+	 * @param size number of rows (and columns) of the level
+	 * @param walls squares of the walls
+	 * @param gums squares of the gums and super gums
+	 */
+	GumField(int size, long[] walls, long[] gums) {
+		this.size = size;
+		this.walls = walls;
+		this.gums = gums;
+		this.eaten = -1;
+	}
+
+	private GumField(GumField parent, int eaten) {
+		this.size = parent.size;
+		this.walls = parent.walls;
+		this.parent = parent;
+		this.eaten = eaten;
+	}
+
+	/**
+	 * return the field once a gum has been eaten
+	 * @param cell square of the eaten gum (row * size + column)
+	 * @return the new field
+	 */
+	GumField without(int cell) {
+		return new GumField(this, cell);
+	}
+
+	/**
+	 * return the distance from a square to the nearest gum
+	 * @param cell the square (row * size + column)
+	 * @return the number of moves, UNREACHABLE if no gum can be reached
+	 */
+	int distance(int cell) {
+		return this.field()[cell];
+	}
+
+	private short[] field() {
+		short[] distances = this.distances;
+		return distances != null ? distances : this.compute();
+	}
+
+	private synchronized short[] compute() {
+		if(this.distances != null)
+			return this.distances;
+		short[] distances = new short[this.size * this.size];
+		int[] queue = new int[distances.length];
+		if(this.parent == null) {
+			Arrays.fill(distances, (short)UNREACHABLE);
+			this.fill(distances, queue);
+		}
+		else {
+			short[] previous = this.parent.field();
+			System.arraycopy(previous, 0, distances, 0, distances.length);
+			if(previous[this.eaten] == 0)
+				this.repair(previous, distances, queue);
+		}
+		this.distances = distances;
+		this.gums = null;
+		this.parent = null;
+		return distances;
+	}
+
+	// breadth first search from every gum
+	private void fill(short[] distances, int[] queue) {
+		int tail = 0;
+		for(int i = 0; i < this.gums.length; i++) {
+			for(long word = this.gums[i]; word != 0; word &= word - 1) {
+				int cell = (i << 6) + Long.numberOfTrailingZeros(word);
+				distances[cell] = 0;
+				queue[tail++] = cell;
+			}
+		}
+		this.search(distances, queue, 0, tail);
+	}
+
+	// distances of the parent without the eaten gum
+	private void repair(short[] previous, short[] distances, int[] queue) {
+		// squares whose every shortest path to a gum went to the eaten one, in increasing distance
+		boolean[] lost = new boolean[distances.length];
+		int[] neighbours = new int[4], around = new int[4];
+		lost[this.eaten] = true;
+		queue[0] = this.eaten;
+		int tail = 1;
+		for(int head = 0; head < tail; head++) {
+			int cell = queue[head];
+			for(int n = this.neighbours(cell, neighbours) - 1; n >= 0; n--) {
+				int next = neighbours[n];
+				if(!lost[next] && previous[next] == previous[cell] + 1 && !this.supported(next, previous, lost, around)) {
+					lost[next] = true;
+					queue[tail++] = next;
+				}
+			}
+		}
+		// the lost squares get the best distance offered by their neighbours that kept theirs, in increasing order
+		long[] seeds = new long[tail];
+		int nbSeeds = 0;
+		for(int i = 0; i < tail; i++) {
+			int cell = queue[i], best = UNREACHABLE;
+			distances[cell] = (short)UNREACHABLE;
+			for(int n = this.neighbours(cell, neighbours) - 1; n >= 0; n--) {
+				if(!lost[neighbours[n]] && previous[neighbours[n]] != UNREACHABLE)
+					best = Math.min(best, previous[neighbours[n]] + 1);
+			}
+			if(best != UNREACHABLE) {
+				distances[cell] = (short)best;
+				seeds[nbSeeds++] = ((long)best << 32) | cell;
+			}
+		}
+		Arrays.sort(seeds, 0, nbSeeds);
+		// then they are spread to the other lost squares, merging the sorted seeds with the queue of the search
+		int head = 0;
+		tail = 0;
+		for(int s = 0; s < nbSeeds || head < tail; ) {
+			int cell;
+			if(head == tail || (s < nbSeeds && (int)(seeds[s] >>> 32) <= distances[queue[head]]))
+				cell = (int)seeds[s++];
+			else
+				cell = queue[head++];
+			for(int n = this.neighbours(cell, neighbours) - 1; n >= 0; n--) {
+				int next = neighbours[n];
+				if(lost[next] && distances[cell] + 1 < distances[next]) {
+					distances[next] = (short)(distances[cell] + 1);
+					queue[tail++] = next;
+				}
+			}
+		}
+	}
+
+	// true if a square has a neighbour one move closer to a gum that did not lose its distance
+	private boolean supported(int cell, short[] previous, boolean[] lost, int[] neighbours) {
+		for(int n = this.neighbours(cell, neighbours) - 1; n >= 0; n--) {
+			if(!lost[neighbours[n]] && previous[neighbours[n]] == previous[cell] - 1)
+				return true;
+		}
+		return false;
+	}
+
+	// breadth first search from the squares of a queue whose distances are set
+	private void search(short[] distances, int[] queue, int head, int tail) {
+		int[] neighbours = new int[4];
+		while(head < tail) {
+			int cell = queue[head++];
+			for(int n = this.neighbours(cell, neighbours) - 1; n >= 0; n--) {
+				int next = neighbours[n];
+				if(distances[next] == UNREACHABLE) {
+					distances[next] = (short)(distances[cell] + 1);
+					queue[tail++] = next;
+				}
+			}
+		}
+	}
+
+	// squares next to a square that are not walls, return their number
+	private int neighbours(int cell, int[] neighbours) {
+		int x = cell / this.size, y = cell % this.size, count = 0;
+		if(x > 0 && !this.isWall(cell - this.size))
+			neighbours[count++] = cell - this.size;
+		if(x + 1 < this.size && !this.isWall(cell + this.size))
+			neighbours[count++] = cell + this.size;
+		if(y > 0 && !this.isWall(cell - 1))
+			neighbours[count++] = cell - 1;
+		if(y + 1 < this.size && !this.isWall(cell + 1))
+			neighbours[count++] = cell + 1;
+		return count;
+	}
+
+	private boolean isWall(int cell) {
+		return (this.walls[cell >>> 6] & (1L << cell)) != 0;
+	}
+}
@@ -0,0 +1,246 @@
+package logic;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Game engine without display: the rules of PacManLauncher.animate are played square by square on the belief state of the map,
+ * without Swing, pauses or animation frames, so that many games can be played to evaluate the AI.
+ * Pacman moves with BeliefState.move, the ghosts follow the rules of Ghost.checkCroisement (drawn with a seeded generator) through BeliefState.moveGhost,
+ * and the belief states seen by the AI are extended and filtered as in the graphical game.
+ * The search of the AI draws from a generator seeded by the same seed, so that a game is replayed move for move when the depth is fixed
+ * (no time budget) and the search runs on a single thread.
+ * A game has its own level and search context, several games can be played at the same time.
+ */
+public class HeadlessGame {
+
+	private data.Map map;
+	private final SearchContext search;
+	private String[] ghostMoves; // last move of each ghost
+	private final Random random;
+	private int level;
+	private int life;
+	private int palier; // next score giving a life
+	private int moves;
+	private final boolean nextLevels; // false if the game stops once the first level is cleared
+
+	/**
+	 * create a game starting at a given level
+	 * @param level number of the first map (between 1 and PacManLauncher.NBR_LVL)
+	 * @param seed seed of the moves of the ghosts and of the draws of the search
+	 */
+	public HeadlessGame(int level, long seed) {
+		this(level, seed, true);
+	}
+
+	/**
+	 * create a game starting at a given level
+	 * @param level number of the first map (between 1 and PacManLauncher.NBR_LVL)
+	 * @param seed seed of the moves of the ghosts and of the draws of the search
+	 * @param nextLevels true to go on with the next level once every gum is eaten, false to end the game
+	 */
+	public HeadlessGame(int level, long seed, boolean nextLevels) {
+		this.nextLevels = nextLevels;
+		this.random = new Random(seed);
+		this.search = new SearchContext(AI.memory_size_mb, seed);
+		this.life = Pacman.LIFE_START;
+		this.palier = Pacman.PALIER;
+		this.moves = 0;
+		this.loadLevel(level, 0);
+	}
+
+	private void loadLevel(int level, int score) {
+		this.level = level;
+		this.map = new data.Map(level, score, this.life);
+		this.ghostMoves = new String[this.map.getPGhost().size()];
+		for(int k = 0; k < this.ghostMoves.length; k++) {
+			this.ghostMoves[k] = PacManLauncher.UP;
+		}
+	}
+
+	/**
+	 * play one move of Pacman and of the ghosts, then go to the next level if every gum has been eaten
+	 * @param toward the action of Pacman (PacManLauncher.UP/DOWN/LEFT/RIGHT)
+	 * @return the points scored during the move
+	 */
+	public int step(String toward) {
+		BeliefState state = this.map.getBeliefState();
+		int score = state.getScore();
+		boolean isInit;
+		this.map.setVisibleBeliefState(BeliefState.extendsBeliefStates(this.map.getVisibleBeliefState(), toward, this.search));
+		switch(toward) {
+		case PacManLauncher.UP: isInit = state.move(-1, 0, 'U'); break;
+		case PacManLauncher.DOWN: isInit = state.move(1, 0, 'D'); break;
+		case PacManLauncher.LEFT: isInit = state.move(0, -1, 'L'); break;
+		default: isInit = state.move(0, 1, 'R'); break;
+		}
+		if(isInit) {//Pacman went on a ghost
+			state = new BeliefState(state, true);
+			this.map.setBeliefState(state);
+		}
+		else {
+			for(int k = 0; k < this.ghostMoves.length && !isInit; k++) {
+				int result = this.moveGhost(state, k);
+				if(result == 1)
+					isInit = true;
+				else if(result == -1)
+					this.ghostMoves[k] = PacManLauncher.UP;
+			}
+		}
+		if(isInit)
+			this.life--;
+		ArrayList<Position> posGhosts = new ArrayList<Position>();
+		for(int k = 0; k < this.ghostMoves.length; k++) {
+			posGhosts.add(state.getPGhost(k));
+		}
+		BeliefState.filter(this.map.getVisibleBeliefState(), posGhosts);
+		if(state.getScore() >= this.palier) {
+			this.life++;
+			this.palier += Pacman.PALIER;
+		}
+		this.moves++;
+		if(state.getNbrOfGommes() == 0 && this.life > 0 && this.nextLevels)
+			this.loadLevel(this.level % PacManLauncher.NBR_LVL + 1, state.getScore());
+		return state.getScore() - score;
+	}
+
+	/**
+	 * move one ghost of a square: a ghost which sees Pacman and is not afraid goes toward him,
+	 * otherwise it goes on in its direction, chooses at random another way at a crossroad and turns back in a dead end
+	 * @return the value of BeliefState.moveGhost: 1 if Pacman is dead, -1 if the ghost is eaten, 0 otherwise
+	 */
+	private int moveGhost(BeliefState state, int k) {
+		Position ghost = state.getPGhost(k), pacman = state.getPacmanOldPosition();
+		String toward = this.ghostMoves[k];
+		if(state.isVisible(ghost.x, ghost.y, pacman.x, pacman.y) && state.getCompteurPeur(k) == 0) {
+			if(ghost.x > pacman.x)
+				toward = PacManLauncher.UP;
+			else if(ghost.x < pacman.x)
+				toward = PacManLauncher.DOWN;
+			else if(ghost.y < pacman.y)
+				toward = PacManLauncher.RIGHT;
+			else if(ghost.y > pacman.y)
+				toward = PacManLauncher.LEFT;
+			else
+				return 0;
+		}
+		else {
+			boolean up = this.isFree(state, ghost.x - 1, ghost.y), down = this.isFree(state, ghost.x + 1, ghost.y);
+			boolean left = this.isFree(state, ghost.x, ghost.y - 1), right = this.isFree(state, ghost.x, ghost.y + 1);
+			boolean crossroad, ahead;
+			switch(toward) {
+			case PacManLauncher.UP: crossroad = left || right; ahead = up; break;
+			case PacManLauncher.DOWN: crossroad = left || right; ahead = down; break;
+			case PacManLauncher.LEFT: crossroad = up || down; ahead = left; break;
+			default: crossroad = up || down; ahead = right; break;
+			}
+			if(crossroad || !ahead) {
+				ArrayList<String> toGo = new ArrayList<String>();
+				if(up && !(crossroad && toward.equals(PacManLauncher.DOWN)))
+					toGo.add(PacManLauncher.UP);
+				if(down && !(crossroad && toward.equals(PacManLauncher.UP)))
+					toGo.add(PacManLauncher.DOWN);
+				if(left && !(crossroad && toward.equals(PacManLauncher.RIGHT)))
+					toGo.add(PacManLauncher.LEFT);
+				if(right && !(crossroad && toward.equals(PacManLauncher.LEFT)))
+					toGo.add(PacManLauncher.RIGHT);
+				if(toGo.isEmpty())
+					return 0;
+				toward = toGo.get(this.random.nextInt(toGo.size()));
+			}
+		}
+		this.ghostMoves[k] = toward;
+		switch(toward) {
+		case PacManLauncher.UP: return state.moveGhost(-1, 0, k, 'U');
+		case PacManLauncher.DOWN: return state.moveGhost(1, 0, k, 'D');
+		case PacManLauncher.LEFT: return state.moveGhost(0, -1, k, 'L');
+		default: return state.moveGhost(0, 1, k, 'R');
+		}
+	}
+
+	private boolean isFree(BeliefState state, int x, int y) {
+		return x >= 0 && y >= 0 && x < state.getMapSize() && y < state.getMapSize() && !state.isWall(x, y);
+	}
+
+	/**
+	 * return the belief state given to the AI
+	 * @return the first of the belief states compatible with what Pacman saw
+	 */
+	public BeliefState getBeliefState() {
+		return this.map.getVisibleBeliefState().get(0);
+	}
+
+	public ArrayList<BeliefState> getVisibleBeliefStates() {
+		return this.map.getVisibleBeliefState();
+	}
+
+	/**
+	 * tell if the game is over
+	 * @return true if Pacman has no life left, or if the level is cleared by a game which does not go on with the next levels
+	 */
+	public boolean isOver() {
+		return this.life <= 0 || this.isLevelCleared();
+	}
+
+	/**
+	 * tell if every gum of the current level has been eaten, which only lasts until the next level is loaded
+	 * @return true if the level is cleared
+	 */
+	public boolean isLevelCleared() {
+		return this.map.getBeliefState().getNbrOfGommes() == 0;
+	}
+
+	public int getScore() {
+		return this.map.getBeliefState().getScore();
+	}
+
+	public int getLife() {
+		return this.life;
+	}
+
+	public int getLevel() {
+		return this.level;
+	}
+
+	public int getMoves() {
+		return this.moves;
+	}
+
+	/**
+	 * let the AI choose the next move of Pacman, with the search context of the game
+	 * @return the action (PacManLauncher.UP/DOWN/LEFT/RIGHT)
+	 */
+	public String nextMove() {
+		return AI.findNextMove(this.getBeliefState(), this.search);
+	}
+
+	public SearchContext getSearchContext() {
+		return this.search;
+	}
+
+	/**
+	 * play a game with the AI until Pacman has no life left or a number of moves is reached
+	 * @param maxMoves largest number of moves of the game
+	 * @return the final score
+	 */
+	public int play(int maxMoves) {
+		while(!this.isOver() && this.moves < maxMoves) {
+			this.step(this.nextMove());
+		}
+		return this.getScore();
+	}
+
+	/**
+	 * play one game with the AI without display
+	 * @param args first level, seed of the game and largest number of moves (default 1 0 20000)
+	 */
+	public static void main(String[] args) {
+		int level = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		int maxMoves = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+		HeadlessGame game = new HeadlessGame(level, seed);
+		long elapsedTime = System.currentTimeMillis();
+		game.play(maxMoves);
+		elapsedTime = System.currentTimeMillis() - elapsedTime;
+		System.out.println("score: " + game.getScore() + "\nlevel: " + game.getLevel() + "\nnbr of actions: " + game.getMoves() + "\ntime: " + elapsedTime + "ms");
+	}
+}
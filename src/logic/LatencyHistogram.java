@@ -0,0 +1,101 @@
+package logic;
+
+/**
+ * Histogram of durations in nanoseconds with a bounded relative error, in the manner of HdrHistogram:
+ * the values below 2^SUB_BITS have their own bucket, then each power of two is split into 2^(SUB_BITS - 1) buckets,
+ * so a value is known within 1/2^(SUB_BITS - 1) of itself whatever its magnitude, with a fixed number of buckets.
+ * The count, the sum, the smallest and the largest values are exact. A histogram is recorded by a single thread.
+ */
+public class LatencyHistogram {
+
+	/** number of significant bits kept for a value */
+	static final int SUB_BITS = 7;
+	private static final int SUB = 1 << SUB_BITS;
+	private static final int HALF = SUB >> 1;
+
+	private final long[] counts = new long[(64 - SUB_BITS + 1) * HALF + HALF];
+	private long count, sum, min = Long.MAX_VALUE, max;
+
+	// bucket of a value: its SUB_BITS most significant bits and the number of bits below them
+	private static int index(long value) {
+		int magnitude = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+		return magnitude * HALF + (int)(value >>> magnitude);
+	}
+
+	// smallest value of a bucket
+	private static long lowest(int index) {
+		if(index < SUB)
+			return index;
+		int magnitude = index / HALF - 1;
+		return (long)(index - magnitude * HALF) << magnitude;
+	}
+
+	/**
+	 * record a duration
+	 * @param nanoseconds the duration, a negative one is recorded as 0
+	 */
+	public void record(long nanoseconds) {
+		long value = Math.max(0, nanoseconds);
+		this.counts[LatencyHistogram.index(value)]++;
+		this.count++;
+		this.sum += value;
+		this.min = Math.min(this.min, value);
+		this.max = Math.max(this.max, value);
+	}
+
+	/**
+	 * add the values of another histogram
+	 * @param other the histogram to add
+	 */
+	public void add(LatencyHistogram other) {
+		for(int i = 0; i < this.counts.length; i++) {
+			this.counts[i] += other.counts[i];
+		}
+		this.count += other.count;
+		this.sum += other.sum;
+		this.min = Math.min(this.min, other.min);
+		this.max = Math.max(this.max, other.max);
+	}
+
+	/**
+	 * return the value below which a given percentage of the values lie
+	 * @param percent the percentage, between 0 and 100
+	 * @return the largest value of the bucket holding the percentile (within the relative error of the histogram), 0 if the histogram is empty
+	 */
+	public long getValueAtPercentile(double percent) {
+		if(this.count == 0)
+			return 0;
+		long rank = Math.max(1, (long)Math.ceil(percent / 100 * this.count)), seen = 0;
+		for(int i = 0; i < this.counts.length; i++) {
+			seen += this.counts[i];
+			if(seen >= rank)
+				return Math.max(this.min, Math.min(this.max, LatencyHistogram.lowest(i + 1) - 1));
+		}
+		return this.max;
+	}
+
+	public long getCount() {
+		return this.count;
+	}
+
+	public long getMax() {
+		return this.count == 0 ? 0 : this.max;
+	}
+
+	public long getMin() {
+		return this.count == 0 ? 0 : this.min;
+	}
+
+	public double getMean() {
+		return this.count == 0 ? 0 : (double)this.sum / this.count;
+	}
+
+	/**
+	 * summary of the histogram in milliseconds
+	 */
+	public String toString() {
+		return String.format("%d moves, mean %.2f ms, p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f ms", this.count, this.getMean() / 1e6,
+				this.getValueAtPercentile(50) / 1e6, this.getValueAtPercentile(90) / 1e6, this.getValueAtPercentile(99) / 1e6,
+				this.getValueAtPercentile(99.9) / 1e6, this.getMax() / 1e6);
+	}
+}
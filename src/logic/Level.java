@@ -0,0 +1,91 @@
+package logic;
+
+import java.util.ArrayList;
+
+import data.LineOfSight;
+
+/**
+ * Topology of a level: its size, its squares, the initial positions of Pacman and of the ghosts and the tables computed from its walls.
+ * Every belief state of a game holds the level it is played on, so that games on different levels can be played at the same time.
+ * The level is filled by data.Map while it reads the file of the level and must not be modified once its belief states are searched.
+ */
+public class Level {
+
+	final int taille; // number of rows (and columns)
+	int tailleCase; // size of a square in pixels, the initial positions are given in pixels
+	int pacmanXInit, pacmanYInit;
+	ArrayList<int[]> listPGhostInit;
+	ArrayList<int[]> gamePositions; // squares that are not walls
+	LineOfSight lineOfSight;
+	// Walls and initial squares of the ghosts as bitsets over the squares, square (i, j) being the bit i * taille + j, built by setVariables
+	long[] walls, ghostSquares;
+	// Moves of the ghosts which do not chase Pacman (ghostMoves[e] holds the positions from which a ghost can go toward the direction of rank e)
+	// and squares visible from each square, as bitsets over the (square, direction) pairs of the level (see GhostPositions), built once per level
+	volatile long[][] ghostMoves, sight;
+	private volatile MazeDistances mazeDistances;
+
+	/**
+	 * construct a level whose squares are not known yet
+	 * @param taille number of rows (and columns) of the level
+	 */
+	public Level(int taille) {
+		this.taille = taille;
+	}
+
+	/**
+	 * set the squares and the initial positions of the level, once its file is read
+	 * @param gamePositions squares that are not walls
+	 * @param lineOfSight squares that see each other
+	 * @param pacmanXInit initial abscissa of Pacman in pixels
+	 * @param pacmanYInit initial ordinate of Pacman in pixels
+	 * @param listPGhostInit initial positions of the ghosts in pixels
+	 * @param tailleCase size of a square in pixels
+	 */
+	public void setVariables(ArrayList<int[]> gamePositions, LineOfSight lineOfSight, int pacmanXInit, int pacmanYInit, ArrayList<int[]> listPGhostInit, int tailleCase) {
+		this.gamePositions = gamePositions;
+		this.lineOfSight = lineOfSight;
+		this.pacmanXInit = pacmanXInit;
+		this.pacmanYInit = pacmanYInit;
+		this.listPGhostInit = listPGhostInit;
+		this.tailleCase = tailleCase;
+		long[] walls = new long[this.words()], ghostSquares = new long[this.words()];
+		for(int cell = 0; cell < this.taille * this.taille; cell++) {
+			walls[cell >>> 6] |= 1L << cell;
+		}
+		for(int[] pos: gamePositions) {
+			int cell = pos[0] * this.taille + pos[1];
+			walls[cell >>> 6] &= ~(1L << cell);
+		}
+		for(int[] pos: listPGhostInit) {
+			int cell = pos[1] / tailleCase * this.taille + pos[0] / tailleCase;
+			ghostSquares[cell >>> 6] |= 1L << cell;
+		}
+		this.walls = walls;
+		this.ghostSquares = ghostSquares;
+		this.ghostMoves = null;
+		this.sight = null;
+		this.mazeDistances = null;
+	}
+
+	// number of longs needed to store one bit per square
+	int words() {
+		return (this.taille * this.taille + 63) >>> 6;
+	}
+
+	boolean isVisible(int row1, int column1, int row2, int column2) {
+		return this.lineOfSight.isVisible(row1, column1, row2, column2);
+	}
+
+	// distances of the level, computed the first time they are needed
+	MazeDistances distances(BeliefState state) {
+		MazeDistances distances = this.mazeDistances;
+		if(distances == null) {
+			synchronized(this) {
+				distances = this.mazeDistances;
+				if(distances == null)
+					this.mazeDistances = distances = new MazeDistances(state);
+			}
+		}
+		return distances;
+	}
+}
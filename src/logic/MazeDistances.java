@@ -0,0 +1,84 @@
+package logic;
+
+import java.util.Arrays;
+
+/**
+ * Length of the shortest path between every two squares of a level that are not walls.
+ * The table is computed once per level with one breadth first search from each square and stored as a matrix of shorts over the open squares,
+ * so a query is a single array read (a level of 25x25 squares with 400 open squares takes 320 kB).
+ */
+final class MazeDistances {
+
+	/** distance between two squares that are not connected */
+	static final int UNREACHABLE = Short.MAX_VALUE;
+
+	private final int size;
+	private final int[] openIndex; // rank of each square among the open squares, -1 for a wall
+	private final int nbOpen;
+	private final short[] distances;
+
+	/**
+	 * compute the distances of a level
+	 * @param state any belief state of the level, only its walls are used
+	 */
+	MazeDistances(BeliefState state) {
+		this.size = state.getMapSize();
+		this.openIndex = new int[this.size * this.size];
+		int[] squares = new int[this.size * this.size];
+		int nbOpen = 0;
+		for(int cell = 0; cell < this.openIndex.length; cell++) {
+			if(state.isWall(cell / this.size, cell % this.size)) {
+				this.openIndex[cell] = -1;
+			}
+			else {
+				this.openIndex[cell] = nbOpen;
+				squares[nbOpen++] = cell;
+			}
+		}
+		this.nbOpen = nbOpen;
+		this.distances = new short[nbOpen * nbOpen];
+		Arrays.fill(this.distances, (short)UNREACHABLE);
+		int[] queue = new int[nbOpen];
+		for(int source = 0; source < nbOpen; source++) {
+			int row = source * nbOpen, head = 0, tail = 0;
+			this.distances[row + source] = 0;
+			queue[tail++] = squares[source];
+			while(head < tail) {
+				int cell = queue[head++];
+				short next = (short)(this.distances[row + this.openIndex[cell]] + 1);
+				int x = cell / this.size, y = cell % this.size;
+				if(x > 0)
+					tail = this.visit(cell - this.size, row, next, queue, tail);
+				if(x + 1 < this.size)
+					tail = this.visit(cell + this.size, row, next, queue, tail);
+				if(y > 0)
+					tail = this.visit(cell - 1, row, next, queue, tail);
+				if(y + 1 < this.size)
+					tail = this.visit(cell + 1, row, next, queue, tail);
+			}
+		}
+	}
+
+	// add a square to the queue of the search if it is open and not reached yet, return the new end of the queue
+	private int visit(int cell, int row, short distance, int[] queue, int tail) {
+		int index = this.openIndex[cell];
+		if(index < 0 || this.distances[row + index] != UNREACHABLE)
+			return tail;
+		this.distances[row + index] = distance;
+		queue[tail] = cell;
+		return tail + 1;
+	}
+
+	/**
+	 * return the length of the shortest path between two squares
+	 * @param cell1 first square (row * size + column)
+	 * @param cell2 second square (row * size + column)
+	 * @return the number of moves, UNREACHABLE if a square is a wall or if there is no path
+	 */
+	int distance(int cell1, int cell2) {
+		int index1 = this.openIndex[cell1], index2 = this.openIndex[cell2];
+		if(index1 < 0 || index2 < 0)
+			return UNREACHABLE;
+		return this.distances[index1 * this.nbOpen + index2];
+	}
+}
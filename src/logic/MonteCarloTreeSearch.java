@@ -0,0 +1,223 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Monte Carlo Tree Search alternative to the expectimax search of AI (selected with AI.engine = "mcts").
+ * Decision nodes choose the action of Pacman with UCT, chance nodes draw one of the belief states of the result of the action,
+ * and the leaves are evaluated with AI.heuristic at the end of a short random rollout.
+ * The number of simulations is either fixed or, when the AI has a time budget, as large as the time of the move allows.
+ */
+class MonteCarloTreeSearch {
+
+	// Parameters to fiddle with
+	static int simulations = Integer.getInteger("pacman.mctsSimulations", 2000); // number of simulations of a move when there is no time budget
+	static final int rollout_depth = 8; // number of random moves played after leaving the tree
+	static final double exploration = 1.4; // UCT exploration constant, values are normalized to [0, 1] before being used
+
+
+	/**
+	 * a node where Pacman chooses an action
+	 */
+	private static class DecisionNode {
+		private BeliefState state;
+		private Plans plans;
+		private ChanceNode[] children;
+		private int visits;
+
+		DecisionNode(BeliefState state) {
+			this.state = state;
+		}
+
+		// the root is built from the plans already computed by the AI
+		DecisionNode(BeliefState state, Plans plans) {
+			this.state = state;
+			this.plans = plans;
+			this.children = new ChanceNode[plans.size()];
+		}
+
+		boolean isTerminal() {
+			return this.state.getLife() <= 0 || this.state.getNbrOfGommes() == 0;
+		}
+
+		// the plans are only computed the second time the node is reached, the first visit ending with a rollout
+		boolean isExpanded() {
+			return this.plans != null;
+		}
+
+		void expand() {
+			this.plans = this.state.extendsBeliefState();
+			this.children = new ChanceNode[this.plans.size()];
+		}
+	}
+
+	/**
+	 * a node where the ghosts "choose" the belief state resulting from the action of Pacman
+	 */
+	private static class ChanceNode {
+		private Result result;
+		private String action;
+		private DecisionNode[] children;
+		private int visits;
+		private double value;
+
+		ChanceNode(Result result, String action) {
+			this.result = result;
+			this.action = action;
+			this.children = new DecisionNode[result.size()];
+		}
+
+		double mean() {
+			return this.visits == 0 ? 0 : this.value / this.visits;
+		}
+	}
+
+	/**
+	 * statistics of the rewards seen during the search of one move, used to normalize the values for UCT
+	 */
+	private static class Bounds {
+		private double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+
+		void add(double reward) {
+			this.min = Math.min(this.min, reward);
+			this.max = Math.max(this.max, reward);
+		}
+
+		double normalize(double value) {
+			return this.max > this.min ? (value - this.min) / (this.max - this.min) : 0.5;
+		}
+	}
+
+	/**
+	 * function that compute the next action to do (among UP, DOWN, LEFT, RIGHT)
+	 * @param beliefState the current belief-state of the agent
+	 * @param plans the plans of the current belief-state
+	 * @param deadline System.nanoTime() after which no new simulation is started, 0 to run a fixed number of simulations (the simulations also end when the context is stopped)
+	 * @param context the search state of the game, which receives the depth of the deepest node reached
+	 * @return a string describing the next action (among PacManLauncher.UP/DOWN/LEFT/RIGHT)
+	 */
+	public static String findNextMove(BeliefState beliefState, Plans plans, long deadline, SearchContext context) {
+		DecisionNode root = new DecisionNode(beliefState, plans);
+		Bounds bounds = new Bounds();
+		int depth_reached = 0;
+		for(int n = 0; n == 0 || !context.stopped && (deadline != 0 ? System.nanoTime() < deadline : n < simulations); n++) {
+			depth_reached = Math.max(depth_reached, simulate(root, bounds, context.random));
+		}
+		context.depth_reached = depth_reached;
+
+		String chosen_action = PacManLauncher.LEFT;
+		double max_utility = Double.NEGATIVE_INFINITY;
+		for(ChanceNode child : root.children) {
+			if(child == null || child.visits == 0)
+				continue;
+			double utility = child.mean();
+			if(AI.opposite_direction(child.action, beliefState.getPacmanPos().getDirection()))
+				utility -= AI.turnback_penalty;
+			if(utility > max_utility) {
+				max_utility = utility;
+				chosen_action = child.action;
+			}
+		}
+		return chosen_action;
+	}
+
+	// One simulation: selection down the tree until a new node is created, rollout from it, then backpropagation of the reward along the path,
+	// returns the depth of the node reached
+	private static int simulate(DecisionNode root, Bounds bounds, Random random) {
+		ArrayList<ChanceNode> path = new ArrayList<ChanceNode>();
+		DecisionNode node = root;
+		BeliefState original_state = null;
+		while(!node.isTerminal()) {
+			if(!node.isExpanded())
+				node.expand();
+			int index = select(node, node == root, bounds);
+			if(index < 0)
+				break;
+			ChanceNode chance = node.children[index];
+			if(chance == null) {
+				chance = new ChanceNode(node.plans.getResult(index), node.plans.getAction(index).get(0));
+				node.children[index] = chance;
+			}
+			node.visits++;
+			path.add(chance);
+			if(chance.result.size() == 0)
+				break;
+			int drawn = random.nextInt(chance.result.size());
+			DecisionNode child = chance.children[drawn];
+			boolean created = child == null;
+			if(created) {
+				child = new DecisionNode(chance.result.getBeliefState(drawn));
+				chance.children[drawn] = child;
+			}
+			node = child;
+			if(original_state == null)
+				original_state = node.state;
+			if(created)
+				break;
+		}
+		if(original_state == null)
+			original_state = node.state;
+
+		double reward = rollout(node.state, original_state, random);
+		bounds.add(reward);
+		for(ChanceNode chance : path) {
+			chance.visits++;
+			chance.value += reward;
+		}
+		return path.size();
+	}
+
+	// UCT selection among the plans of a node, untried plans first. Below the root U-turns are skipped, as in AI.treesearch
+	private static int select(DecisionNode node, boolean isRoot, Bounds bounds) {
+		int selected = -1;
+		double max_score = Double.NEGATIVE_INFINITY;
+		double log_visits = Math.log(Math.max(1, node.visits));
+		char direction = node.state.getPacmanPos().getDirection();
+		for(int i = 0; i < node.children.length; i++) {
+			if(!isRoot && node.plans.getAction(i).size() == 1 && AI.opposite_direction(node.plans.getAction(i).get(0), direction))
+				continue;
+			ChanceNode child = node.children[i];
+			if(child == null || child.visits == 0)
+				return i;
+			double score = bounds.normalize(child.mean()) + exploration * Math.sqrt(log_visits / child.visits);
+			if(score > max_score) {
+				max_score = score;
+				selected = i;
+			}
+		}
+		return selected;
+	}
+
+	// Random walk from a belief state: Pacman avoids U-turns unless it is in a dead end, one of the resulting belief states is drawn at each step
+	private static float rollout(BeliefState bstate, BeliefState original_state, Random random) {
+		int life = bstate.getLife();
+		for(int step = 0; step < rollout_depth && bstate.getLife() == life && bstate.getNbrOfGommes() > 0; step++) {
+			ArrayList<String> moves = new ArrayList<String>();
+			ArrayList<String> turnbacks = new ArrayList<String>();
+			Position pos = bstate.getPacmanPos();
+			addMove(bstate, pos.x - 1, pos.y, PacManLauncher.UP, moves, turnbacks);
+			addMove(bstate, pos.x + 1, pos.y, PacManLauncher.DOWN, moves, turnbacks);
+			addMove(bstate, pos.x, pos.y - 1, PacManLauncher.LEFT, moves, turnbacks);
+			addMove(bstate, pos.x, pos.y + 1, PacManLauncher.RIGHT, moves, turnbacks);
+			if(moves.isEmpty())
+				moves = turnbacks;
+			if(moves.isEmpty())
+				break;
+			Result result = bstate.extendsBeliefState(moves.get(random.nextInt(moves.size())));
+			if(result.size() == 0)
+				break;
+			bstate = result.getBeliefState(random.nextInt(result.size()));
+		}
+		return AI.heuristic(bstate, original_state);
+	}
+
+	private static void addMove(BeliefState bstate, int x, int y, String move, ArrayList<String> moves, ArrayList<String> turnbacks) {
+		if(x < 0 || y < 0 || x >= bstate.getMapSize() || y >= bstate.getMapSize() || bstate.isWall(x, y))
+			return;
+		if(AI.opposite_direction(move, bstate.getPacmanPos().getDirection()))
+			turnbacks.add(move);
+		else
+			moves.add(move);
+	}
+}
@@ -12,10 +12,19 @@ public class PacManLauncher {
 	public static final String DOWN = "DOWN";
 	public static final String LEFT = "LEFT";
 	public static final String RIGHT = "RIGHT";
-	private static final int NBR_LVL = 3; // TODO : compter le nbr de fichier .map ??
-	private double meanTimeResolution;
+	static final int NBR_LVL = 3; // TODO : compter le nbr de fichier .map ??
+	private int level;
+	private int scoreAtStart; // score de Pacman au debut de la map en cours
+	// time taken by the AI to choose each move, for the whole game, for each map and by number of visible belief states (1, 2, 3-4, 5-8...)
+	private LatencyHistogram latency;
+	private LatencyHistogram[] latencyPerMap;
+	private TreeMap<Integer, LatencyHistogram> latencyPerBeliefStates;
+	private double meanDepthReached;
 	private long nbrSamples;
 	private static long nbrMaxSample = 20000;
+	// temps laisse a l'IA pour choisir un mouvement en millisecondes (-Dpacman.decisionMs), par defaut une demi periode de la boucle de jeu :
+	// la recherche du mouvement commence des que Pacman s'engage dans la case, la boucle n'attend donc jamais plus d'une periode
+	private static int decisionMs = Integer.getInteger("pacman.decisionMs", Canvas.TICK_MS / 2);
 	
 	/**
 	 * initialize au lancement le jeu pacman
@@ -24,11 +33,19 @@ public class PacManLauncher {
 	 * les fantomes du niveau
 	 */
 	public PacManLauncher () {
+		this.level = 1;
+		this.scoreAtStart = 0;
 		this.maps = new data.Map(1, this);
 		this.fillGhost();
 		this.pacman = new Pacman(this.maps.getTailleCase(), this.maps.getPMX(), this.maps.getPMY());
 		this.pacman.setMap(this.maps);
-		this.meanTimeResolution = 0;
+		this.latency = new LatencyHistogram();
+		this.latencyPerMap = new LatencyHistogram[PacManLauncher.NBR_LVL];
+		for(int lvl = 0; lvl < PacManLauncher.NBR_LVL; lvl++) {
+			this.latencyPerMap[lvl] = new LatencyHistogram();
+		}
+		this.latencyPerBeliefStates = new TreeMap<Integer, LatencyHistogram>();
+		this.meanDepthReached = 0;
 		this.nbrSamples = 0;
 		
 	}
@@ -38,12 +55,14 @@ public class PacManLauncher {
 		PacManLauncher pml = new PacManLauncher();
 		pml.draw();
 		pml.animate(); // Le lvl 1
+		pml.addResult();
 
 		int i = 2;
 		while ((pml.getPacman().getLife() > 0) && (pml.nbrSamples < PacManLauncher.nbrMaxSample)) {
 			pml.upLvl(i);
 			pml.draw();
 			pml.animate();
+			pml.addResult();
 			i++;
 			if (i > PacManLauncher.NBR_LVL) {
 				i=1;
@@ -53,8 +72,32 @@ public class PacManLauncher {
 		if ((Integer.valueOf(Score.getScore()) < pml.getPacman().getScore()) && (pml.nbrSamples < PacManLauncher.nbrMaxSample)) {
 			Score.setScore(pml.getPacman().getScore()+"");
 		}
-		System.out.println("mean time resolution:" + pml.meanTimeResolution + "ms\nnbr of actions: " + pml.nbrSamples);
+		for(int lvl = 1; lvl <= PacManLauncher.NBR_LVL; lvl++) {
+			if(!Score.getLeaderboard(lvl).isEmpty())
+				System.out.println("best results of map " + lvl + ": " + Score.getLeaderboard(lvl));
+		}
+		System.out.println("time resolution: " + pml.latency + "\nmean depth reached: " + pml.meanDepthReached + "\nnbr of actions: " + pml.nbrSamples);
+		System.out.println("dropped frames: " + Canvas.getCanvas().getDroppedFrames() + ", dropped ticks: " + Canvas.getCanvas().getLateTicks() + ", missed decisions: " + AI.window_context.getMissedDeadlines());
+		for(int lvl = 0; lvl < PacManLauncher.NBR_LVL; lvl++) {
+			if(pml.latencyPerMap[lvl].getCount() > 0)
+				System.out.println("map " + (lvl + 1) + ": " + pml.latencyPerMap[lvl]);
+		}
+		for(java.util.Map.Entry<Integer, LatencyHistogram> entry: pml.latencyPerBeliefStates.entrySet()) {
+			int upper = entry.getKey();
+			System.out.println((upper <= 2 ? String.valueOf(upper) : (upper / 2 + 1) + "-" + upper) + " visible belief states: " + entry.getValue());
+		}
+		if(AI.search_stats)
+			System.out.println(AI.getSearchStats());
 		System.out.println("~~~END~~~");
+		Score.flush();
+	}
+
+	/**
+	 * ajoute au classement de la map les points marques sur cette map, sans ceux des maps precedentes
+	 */
+	private void addResult() {
+		if(this.nbrSamples < PacManLauncher.nbrMaxSample)
+			Score.addResult(this.level, this.pacman.getScore() - this.scoreAtStart);
 	}
 
 	/**
@@ -62,6 +105,8 @@ public class PacManLauncher {
 	 * @param int lvl le niveau souhaité
 	 */
 	public void upLvl (int lvl) {
+		this.level = lvl;
+		this.scoreAtStart = this.pacman.getScore();
 		this.maps = new data.Map(lvl, this);
 		this.fillGhost();
 		this.pacman.setLocation(this.maps.getPMX(), this.maps.getPMY());
@@ -151,9 +196,9 @@ public class PacManLauncher {
 				System.out.println("Problem");
 			if(this.getPacman().getScore() != this.maps.getVisibleState().get(0).getScore())
 				System.out.println("Problem");
-			for(int row = 0; row < this.maps.getState().getMap().length; row++) {
-				for(int column = 0; column < this.maps.getState().getMap()[row].length; column++) {
-					if(this.maps.getState().getMap()[row][column] != this.maps.getVisibleState().iterator().next().getMap()[row][column])
+			for(int row = 0; row < this.maps.getState().getMapSize(); row++) {
+				for(int column = 0; column < this.maps.getState().getMapSize(); column++) {
+					if(this.maps.getState().getMap(row, column) != this.maps.getVisibleState().iterator().next().getMap(row, column))
 						System.out.println("Problem");
 				}
 			}
@@ -168,14 +213,17 @@ public class PacManLauncher {
 			if(this.maps.getState().getNbrOfSuperGommes() != this.maps.getVisibleState().getFirst().getNbrOfSuperGommes())
 				System.out.println("Problem");*/
 			if(Canvas.getCanvas().isAIdriven()) {//c'est l'IA qui joue
-				long elapsedTime = System.currentTimeMillis();
-				if(this.maps.getVisibleBeliefState().size() != 1) {
+				int nbrVisible = this.maps.getVisibleBeliefState().size();
+				if(nbrVisible != 1) {
 					System.out.println("Problem");
 				}
-				isInit = this.pacman.move(AI.findNextMove(this.maps.getVisibleBeliefState().get(0)));//l'IA choisit un mouvement est Pacman commence a se deplacer
-				elapsedTime = System.currentTimeMillis() - elapsedTime;
+				long elapsedTime = System.nanoTime();
+				String action = AI.findNextMove(this.maps.getVisibleBeliefState().get(0), AI.window_context, elapsedTime + decisionMs * 1000000L, this.pacman.getPreviousMove());
+				elapsedTime = System.nanoTime() - elapsedTime;
+				isInit = this.pacman.move(action);//l'IA choisit un mouvement est Pacman commence a se deplacer
 				this.nbrSamples++;
-				this.meanTimeResolution = ((double)elapsedTime) / this.nbrSamples + (((double)(this.nbrSamples - 1)) / this.nbrSamples) * this.meanTimeResolution;
+				this.recordLatency(elapsedTime, nbrVisible);
+				this.meanDepthReached = ((double)AI.getDepthReached()) / this.nbrSamples + (((double)(this.nbrSamples - 1)) / this.nbrSamples) * this.meanDepthReached;
 			}
 			else {
 				if (c.isUpPressed()) {
@@ -222,6 +270,15 @@ public class PacManLauncher {
 					}
 				}
 			}
+			//les fantomes ont atteint leur case dans l'etat de croyance : les etats visibles sont filtres avant que Pacman ne traverse la case
+			ArrayList<Position> posGhosts = new ArrayList<Position>();
+			for(int i = 0; i < this.ghost.length; i++) {
+				posGhosts.add(this.maps.getBeliefState().getPGhost(i));
+			}
+			BeliefState.filter(this.maps.getVisibleBeliefState(), posGhosts);
+			if(Canvas.getCanvas().isAIdriven()) {
+				AI.ponder(this.maps.getVisibleBeliefState(), AI.window_context);//l'IA cherche le prochain mouvement pendant que Pacman traverse la case
+			}
 			Canvas.getCanvas().redraw(this.pacman.getScore(), this.pacman.getLife(), Score.getScore());
 			while(this.getPacman().getX() % this.maps.getTailleCase() != 0 || this.getPacman().getY() % this.maps.getTailleCase() != 0 || this.getPacman().getCount() % (this.maps.getTailleCase() / Pacman.SPEED_PACMAN) != 0) {
 				this.pacman.move(this.pacman.getPreviousMove());
@@ -232,13 +289,21 @@ public class PacManLauncher {
 			}
 			this.collisionGhost(isInit, isDead);
 			
-			for(int i = 0; i < this.ghost.length; i++) {
-				BeliefState.filter(this.maps.getVisibleBeliefState(), i, this.maps.getBeliefState().getPGhost(i));
-			}
-			
 		}
 	}
 
+	/**
+	 * enregistre le temps mis par l'IA pour choisir un mouvement
+	 * @param elapsedTime la duree en nanosecondes
+	 * @param nbrVisible le nombre d'etats de croyance visibles au moment du choix
+	 */
+	private void recordLatency(long elapsedTime, int nbrVisible) {
+		this.latency.record(elapsedTime);
+		this.latencyPerMap[this.level - 1].record(elapsedTime);
+		int upper = nbrVisible <= 1 ? 1 : Integer.highestOneBit(nbrVisible - 1) << 1;//puissance de 2 superieure ou egale
+		this.latencyPerBeliefStates.computeIfAbsent(upper, k -> new LatencyHistogram()).record(elapsedTime);
+	}
+
 	/**
 	 * verifie s'il existe une colision entre pacman et l'un des fantome
 	 * si oui alors pacman perd une vie
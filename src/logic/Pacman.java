@@ -1,5 +1,4 @@
 package logic;
-import java.util.ArrayList;
 
 //import data.*;
 import view.*;
@@ -155,14 +154,13 @@ public class Pacman extends Entite {
 		
 		if(this.getX() % this.map.getTailleCase() == 0 && this.getY() % this.map.getTailleCase() == 0 && (count % (this.map.getTailleCase() / Pacman.SPEED_PACMAN) == 0)) {//si Pacman commence un mouvement
 			this.isMoving = this.testMove(toward);
-			ArrayList<BeliefState> visibleBeliefState = this.map.getVisibleBeliefState(), newVisibleBeliefState = new ArrayList<BeliefState>();
 			switch(toward){
-			case PacManLauncher.UP: toInit = this.map.getBeliefState().move(-1, 0, 'U'); for(BeliefState state: visibleBeliefState) { newVisibleBeliefState.addAll(state.extendsBeliefState(PacManLauncher.UP).getBeliefStates());} break;
-			case PacManLauncher.DOWN: toInit = this.map.getBeliefState().move(1, 0, 'D'); for(BeliefState state: visibleBeliefState) { newVisibleBeliefState.addAll(state.extendsBeliefState(PacManLauncher.DOWN).getBeliefStates());} break;
-			case PacManLauncher.LEFT: toInit = this.map.getBeliefState().move(0, -1, 'L'); for(BeliefState state: visibleBeliefState) { newVisibleBeliefState.addAll(state.extendsBeliefState(PacManLauncher.LEFT).getBeliefStates());} break;
-			case PacManLauncher.RIGHT: toInit = this.map.getBeliefState().move(0, 1, 'R'); for(BeliefState state: visibleBeliefState) { newVisibleBeliefState.addAll(state.extendsBeliefState(PacManLauncher.RIGHT).getBeliefStates());} break;
+			case PacManLauncher.UP: toInit = this.map.getBeliefState().move(-1, 0, 'U'); break;
+			case PacManLauncher.DOWN: toInit = this.map.getBeliefState().move(1, 0, 'D'); break;
+			case PacManLauncher.LEFT: toInit = this.map.getBeliefState().move(0, -1, 'L'); break;
+			case PacManLauncher.RIGHT: toInit = this.map.getBeliefState().move(0, 1, 'R'); break;
 			}
-			this.map.setVisibleBeliefState(newVisibleBeliefState);
+			this.map.setVisibleBeliefState(BeliefState.extendsBeliefStates(this.map.getVisibleBeliefState(), toward, AI.window_context));
 		}
 		count++;
 		if(this.isMoving) {
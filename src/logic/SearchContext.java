@@ -0,0 +1,186 @@
+package logic;
+
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * State kept by the AI from one move of a game to the next: its memory of the belief states already searched, the number of moves played,
+ * the deadline of the current move, the depth reached by the last search and the counters of the search.
+ * It also owns the worker thread on which AI.findNextMove(state, context, deadline, fallback) searches the moves of the game,
+ * and the pool of threads of its parallel search, so that the games searched at the same time do not share their pools.
+ * Each game has its own context, so that independent games can be searched at the same time; the parameters of the search stay in AI.
+ */
+public class SearchContext {
+
+	final TranspositionTable memory;
+	int number_of_moves;
+	volatile long deadline; // System.nanoTime() after which the search stops, 0 when there is none
+	int depth_reached;
+	volatile boolean stopped; // set to end the search in progress at its next node, as when its deadline is over
+	int missed_deadlines; // moves for which the search was stopped because the game could not wait anymore
+	private ExecutorService worker;
+	private ForkJoinPool pool; // threads of the parallel search of the root, created once it is used
+	private final Object poolLock = new Object(); // not the context itself, which stopPondering holds while the pondering may need the pool
+	private Future<?> pondering; // search started by AI.ponder, running on the worker until the next move is searched
+	final SearchStats stats = new SearchStats(); // filled when AI.search_stats is set
+	// draws of the search (children sampled by max_expand, MCTS), seeded by the game so that it can be replayed with a fixed depth and a single thread
+	final Random random;
+	// states resulting from the last move chosen, computed by the search from the belief state searched, kept until they are used once
+	private BeliefState searched;
+	private String chosen_action;
+	private Result chosen_result;
+
+	/**
+	 * construct the context of a new game, with a memory of AI.memory_size_mb megabytes
+	 */
+	public SearchContext() {
+		this(AI.memory_size_mb);
+	}
+
+	/**
+	 * construct the context of a new game
+	 * @param memorySizeMb memory budget of the transposition table in megabytes
+	 */
+	public SearchContext(int memorySizeMb) {
+		this(memorySizeMb, new Random().nextLong());
+	}
+
+	/**
+	 * construct the context of a new game whose search draws from a seeded generator
+	 * @param memorySizeMb memory budget of the transposition table in megabytes
+	 * @param seed seed of the draws of the search
+	 */
+	public SearchContext(int memorySizeMb, long seed) {
+		this.random = new Random(seed);
+		this.memory = new TranspositionTable(memorySizeMb, AI.memory_refresh_rate);
+		this.number_of_moves = 0;
+		this.deadline = 0;
+		this.depth_reached = AI.maxdepth;
+	}
+
+	/**
+	 * return the depth of the search which chose the last move
+	 * @return the depth of the last completed iteration, AI.maxdepth when there is no time budget (the depth of the deepest node for MCTS)
+	 */
+	public int getDepthReached() {
+		return this.depth_reached;
+	}
+
+	/**
+	 * remember the states resulting from the move chosen by the search
+	 * @param searched the belief state from which the move was chosen
+	 * @param action the move
+	 * @param result the states computed by extendsBeliefState(action) on the belief state
+	 */
+	synchronized void setChosen(BeliefState searched, String action, Result result) {
+		this.searched = searched;
+		this.chosen_action = action;
+		this.chosen_result = result;
+	}
+
+	/**
+	 * create all possible states resulting from an action of Pacman, as BeliefState.extendsBeliefState(toward) does,
+	 * the states computed by the last search are given back when it chose this action from this very belief state
+	 * @param state the belief state
+	 * @param toward the action performed by Pacman (PacManLauncher.UP/DOWN/LEFT/RIGHT)
+	 * @return the possible states after the action
+	 */
+	Result extendsBeliefState(BeliefState state, String toward) {
+		Result result = this.takeChosen(state, toward);
+		return result != null ? result : state.extendsBeliefState(toward);
+	}
+
+	// states of the last move chosen if it was chosen from a given state, null otherwise
+	private synchronized Result takeChosen(BeliefState state, String toward) {
+		if(state != this.searched || !toward.equals(this.chosen_action))
+			return null;
+		Result result = this.chosen_result;
+		this.setChosen(null, null, null);
+		return result;
+	}
+
+	/**
+	 * return the counters of the search of the game
+	 * @return the counters, only filled when the instrumentation of AI is on
+	 */
+	public SearchStats getStats() {
+		return this.stats;
+	}
+
+	public int getNumberOfMoves() {
+		return this.number_of_moves;
+	}
+
+	/**
+	 * return the number of moves whose search missed the deadline given by the game
+	 * @return the number of moves played without waiting for the end of their search
+	 */
+	public int getMissedDeadlines() {
+		return this.missed_deadlines;
+	}
+
+	/**
+	 * run a search in the background on the worker, in place of the one already running
+	 * @param search the search, which ends at its next node once the context is stopped
+	 */
+	synchronized void startPondering(Runnable search) {
+		this.stopPondering();
+		this.pondering = this.getWorker().submit(search);
+	}
+
+	/**
+	 * stop the search running in the background and wait for its end
+	 */
+	synchronized void stopPondering() {
+		if(this.pondering == null)
+			return;
+		this.stopped = true;
+		try {
+			this.pondering.get();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch(ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		finally {
+			this.stopped = false;
+			this.pondering = null;
+		}
+	}
+
+	/**
+	 * return the pool of the parallel search of the game, with AI.parallelism threads
+	 * It is only called between two searches of the root plans, whose tasks are all joined, so a pool of another size can be shut down.
+	 * @return the pool
+	 */
+	ForkJoinPool getPool() {
+		synchronized(this.poolLock) {
+			if(this.pool != null && this.pool.getParallelism() != AI.parallelism) {
+				this.pool.shutdown();
+				this.pool = null;
+			}
+			if(this.pool == null) {
+				this.pool = new ForkJoinPool(AI.parallelism);
+			}
+			return this.pool;
+		}
+	}
+
+	// The thread searching the moves of the game, created on the first asynchronous search
+	synchronized ExecutorService getWorker() {
+		if(this.worker == null) {
+			this.worker = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "search");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return this.worker;
+	}
+}
@@ -0,0 +1,193 @@
+package logic;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of what the tree search of AI did, filled only when AI.search_stats is set.
+ * The counters of the current move are adders that the workers of the parallel search can increment without contention,
+ * they are added to the totals of the game at the end of each move, which also records the number of nodes and the largest set of ghost hypotheses
+ * of the move in histograms whose bucket b holds the moves with a value between 2^(b-1) and 2^b - 1.
+ */
+public class SearchStats {
+
+	/** number of buckets of the histograms, the last one also holds the larger values */
+	static final int BUCKETS = 32;
+
+	// counters of the current move
+	final LongAdder nodes = new LongAdder(); // belief states expanded by treesearch
+	final LongAdder leaves = new LongAdder(); // belief states evaluated with the heuristic
+	final LongAdder probes = new LongAdder(); // lookups in the memory
+	final LongAdder hits = new LongAdder(); // lookups which found a value
+	final LongAdder children = new LongAdder(); // belief states resulting from the plans of the expanded nodes
+	final LongAdder sampled = new LongAdder(); // children kept by the random sampling of max_expand
+	final LongAdder pruned = new LongAdder(); // sampled children not searched because of star1 pruning
+	final LongAccumulator hypotheses = new LongAccumulator(Math::max, 0); // largest number of positions of a ghost in an expanded node
+
+	// totals of the game
+	private long moves, totalNodes, totalLeaves, totalProbes, totalHits, totalChildren, totalSampled, totalPruned, maxHypotheses;
+	private final long[] nodesPerMove = new long[BUCKETS];
+	private final long[] hypothesesPerMove = new long[BUCKETS];
+	private long lastNodes; // nodes expanded during the last move
+
+	/**
+	 * count an expanded node
+	 * @param bstate the belief state expanded
+	 */
+	void expand(BeliefState bstate) {
+		this.nodes.increment();
+		long largest = 0;
+		for(int k = 0; k < bstate.getNbrOfGhost(); k++) {
+			largest = Math.max(largest, bstate.getGhostPositions(k).size());
+		}
+		this.hypotheses.accumulate(largest);
+	}
+
+	/**
+	 * add the counters of the current move to the totals of the game and reset them
+	 */
+	synchronized void endMove() {
+		this.lastNodes = this.nodes.sumThenReset();
+		long largest = this.hypotheses.getThenReset();
+		this.moves++;
+		this.totalNodes += this.lastNodes;
+		this.totalLeaves += this.leaves.sumThenReset();
+		this.totalProbes += this.probes.sumThenReset();
+		this.totalHits += this.hits.sumThenReset();
+		this.totalChildren += this.children.sumThenReset();
+		this.totalSampled += this.sampled.sumThenReset();
+		this.totalPruned += this.pruned.sumThenReset();
+		this.maxHypotheses = Math.max(this.maxHypotheses, largest);
+		this.nodesPerMove[SearchStats.bucket(this.lastNodes)]++;
+		this.hypothesesPerMove[SearchStats.bucket(largest)]++;
+	}
+
+	/**
+	 * add the totals of the game to the ones of another object, to aggregate several games
+	 * @param total the object receiving the totals
+	 */
+	synchronized void addTo(SearchStats total) {
+		synchronized(total) {
+			total.moves += this.moves;
+			total.totalNodes += this.totalNodes;
+			total.totalLeaves += this.totalLeaves;
+			total.totalProbes += this.totalProbes;
+			total.totalHits += this.totalHits;
+			total.totalChildren += this.totalChildren;
+			total.totalSampled += this.totalSampled;
+			total.totalPruned += this.totalPruned;
+			total.maxHypotheses = Math.max(total.maxHypotheses, this.maxHypotheses);
+			for(int b = 0; b < BUCKETS; b++) {
+				total.nodesPerMove[b] += this.nodesPerMove[b];
+				total.hypothesesPerMove[b] += this.hypothesesPerMove[b];
+			}
+		}
+	}
+
+	// bucket of a value in the histograms, the number of bits of the value
+	private static int bucket(long value) {
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+	}
+
+	public synchronized long getMoves() {
+		return this.moves;
+	}
+
+	public synchronized long getNodes() {
+		return this.totalNodes;
+	}
+
+	public synchronized long getLeaves() {
+		return this.totalLeaves;
+	}
+
+	/**
+	 * return the number of nodes expanded during the last move
+	 * @return the number of nodes
+	 */
+	public synchronized long getLastMoveNodes() {
+		return this.lastNodes;
+	}
+
+	/**
+	 * return the proportion of the lookups in the memory which found a value
+	 * @return the hit rate of the game, between 0 and 1
+	 */
+	public synchronized double getHitRate() {
+		return this.totalProbes == 0 ? 0 : (double)this.totalHits / this.totalProbes;
+	}
+
+	/**
+	 * return the mean number of children of an expanded node, before the sampling
+	 * @return the mean branching factor of the game
+	 */
+	public synchronized double getBranchingFactor() {
+		return this.totalNodes == 0 ? 0 : (double)this.totalChildren / this.totalNodes;
+	}
+
+	/**
+	 * return the mean number of children searched by an expanded node
+	 * @return the mean number of children sampled and not pruned
+	 */
+	public synchronized double getEffectiveBranchingFactor() {
+		return this.totalNodes == 0 ? 0 : (double)(this.totalSampled - this.totalPruned) / this.totalNodes;
+	}
+
+	/**
+	 * return the proportion of the children skipped by the sampling of max_expand
+	 * @return the rate of the game, between 0 and 1
+	 */
+	public synchronized double getSkipRate() {
+		return this.totalChildren == 0 ? 0 : (double)(this.totalChildren - this.totalSampled) / this.totalChildren;
+	}
+
+	/**
+	 * return the proportion of the sampled children that star1 pruning did not search
+	 * @return the rate of the game, between 0 and 1
+	 */
+	public synchronized double getPruneRate() {
+		return this.totalSampled == 0 ? 0 : (double)this.totalPruned / this.totalSampled;
+	}
+
+	public synchronized long getMaxHypotheses() {
+		return this.maxHypotheses;
+	}
+
+	/**
+	 * return the histogram of the number of nodes expanded per move
+	 * @return the number of moves in each bucket, bucket b holding the values between 2^(b-1) and 2^b - 1
+	 */
+	public synchronized long[] getNodesPerMove() {
+		return this.nodesPerMove.clone();
+	}
+
+	/**
+	 * return the histogram of the largest number of positions of a ghost per move
+	 * @return the number of moves in each bucket, bucket b holding the values between 2^(b-1) and 2^b - 1
+	 */
+	public synchronized long[] getHypothesesPerMove() {
+		return this.hypothesesPerMove.clone();
+	}
+
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("moves searched: " + this.moves + ", nodes: " + this.totalNodes + " (" + (this.moves == 0 ? 0 : this.totalNodes / this.moves) + " per move), leaves: " + this.totalLeaves + "\n");
+		sb.append(String.format("memory hit rate: %.1f%% of %d lookups\n", 100 * this.getHitRate(), this.totalProbes));
+		sb.append(String.format("branching factor: %.2f, searched: %.2f (%.1f%% skipped by max_expand, %.1f%% of the others pruned)\n", this.getBranchingFactor(),
+				this.getEffectiveBranchingFactor(), 100 * this.getSkipRate(), 100 * this.getPruneRate()));
+		sb.append("largest ghost hypotheses: " + this.maxHypotheses + "\n");
+		sb.append("nodes per move:" + SearchStats.histogram(this.nodesPerMove) + "\n");
+		sb.append("ghost hypotheses per move:" + SearchStats.histogram(this.hypothesesPerMove));
+		return sb.toString();
+	}
+
+	// non empty buckets of a histogram, as "<upper bound:count"
+	private static String histogram(long[] counts) {
+		StringBuilder sb = new StringBuilder();
+		for(int b = 0; b < BUCKETS; b++) {
+			if(counts[b] > 0)
+				sb.append(" <" + (b == BUCKETS - 1 ? "inf" : String.valueOf(1L << b)) + ":" + counts[b]);
+		}
+		return sb.toString();
+	}
+}
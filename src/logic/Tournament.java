@@ -0,0 +1,185 @@
+package logic;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * result of one game of a tournament
+ */
+class GameRecord{
+	final int level;
+	final long seed;
+	final int score;
+	final int moves;
+	final boolean won;
+	final LatencyHistogram latency; // time taken by the AI to choose each move
+	final SearchStats stats; // counters of the search, filled when AI.search_stats is set
+
+	/**
+	 * play a game with the AI and record its result
+	 * @param game the game, which must stop at the end of its level
+	 * @param level the level of the game
+	 * @param seed the seed of the game
+	 * @param maxMoves largest number of moves of the game
+	 */
+	GameRecord(HeadlessGame game, int level, long seed, int maxMoves) {
+		this.latency = new LatencyHistogram();
+		while(!game.isOver() && game.getMoves() < maxMoves) {
+			long start = System.nanoTime();
+			String action = game.nextMove();
+			this.latency.record(System.nanoTime() - start);
+			game.step(action);
+		}
+		this.level = level;
+		this.seed = seed;
+		this.score = game.getScore();
+		this.moves = game.getMoves();
+		this.won = game.isLevelCleared();
+		this.stats = game.getSearchContext().getStats();
+	}
+}
+
+
+/**
+ * Runs many games of the AI without display on a thread pool and reports aggregated statistics:
+ * win rate (a game is won when every gum of its level is eaten), score distribution, moves per second and latency percentiles of the AI,
+ * and the counters of the search of all the games when they are turned on (-Dpacman.searchStats=true).
+ * The games are spread over every level and each one has its own HeadlessGame (level and search context) and seed, so that a tournament can be replayed.
+ * Usage: Tournament [games [threads [maxMoves [seed]]]]
+ */
+public class Tournament {
+
+	private final int nbGames;
+	private final int nbThreads;
+	private final int maxMoves;
+	private final long seed;
+	private final ArrayList<GameRecord> records;
+	private long elapsedTime; // wall clock time of the tournament in nanoseconds
+
+	/**
+	 * create a tournament
+	 * @param nbGames number of games, spread over the levels
+	 * @param nbThreads number of games played at the same time
+	 * @param maxMoves largest number of moves of a game
+	 * @param seed seed of the first game, the following ones use the next seeds
+	 */
+	public Tournament(int nbGames, int nbThreads, int maxMoves, long seed) {
+		this.nbGames = nbGames;
+		this.nbThreads = Math.max(1, nbThreads);
+		this.maxMoves = maxMoves;
+		this.seed = seed;
+		this.records = new ArrayList<GameRecord>();
+	}
+
+	/**
+	 * play every game of the tournament
+	 * @throws InterruptedException if the thread is interrupted while waiting for the games
+	 * @throws ExecutionException if a game failed
+	 */
+	public void run() throws InterruptedException, ExecutionException {
+		ExecutorService pool = Executors.newFixedThreadPool(this.nbThreads);
+		long start = System.nanoTime();
+		try {
+			ArrayList<Future<GameRecord>> results = new ArrayList<Future<GameRecord>>();
+			for(int g = 0; g < this.nbGames; g++) {
+				final int level = g % PacManLauncher.NBR_LVL + 1;
+				final long seed = this.seed + g;
+				results.add(pool.submit(() -> new GameRecord(new HeadlessGame(level, seed, false), level, seed, this.maxMoves)));
+			}
+			for(Future<GameRecord> result: results) {
+				this.records.add(result.get());
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+		this.elapsedTime = System.nanoTime() - start;
+	}
+
+	public ArrayList<GameRecord> getRecords() {
+		return this.records;
+	}
+
+	/**
+	 * return the statistics of the games played
+	 * @return a multi-line report
+	 */
+	public String report() {
+		int nbWon = 0, nbMoves = 0;
+		int[] scores = new int[this.records.size()];
+		double mean = 0, variance = 0;
+		for(int i = 0; i < scores.length; i++) {
+			GameRecord record = this.records.get(i);
+			scores[i] = record.score;
+			nbMoves += record.moves;
+			if(record.won)
+				nbWon++;
+			mean += record.score;
+		}
+		mean /= Math.max(1, scores.length);
+		for(int score: scores) {
+			variance += (score - mean) * (score - mean);
+		}
+		variance /= Math.max(1, scores.length);
+		LatencyHistogram latency = new LatencyHistogram();
+		for(GameRecord record: this.records) {
+			latency.add(record.latency);
+		}
+		Arrays.sort(scores);
+		StringBuilder sb = new StringBuilder();
+		sb.append("games: " + scores.length + " on " + this.nbThreads + " threads, " + nbMoves + " moves in " + this.elapsedTime / 1000000 + "ms\n");
+		for(int level = 1; level <= PacManLauncher.NBR_LVL; level++) {
+			int played = 0, won = 0, total = 0;
+			LatencyHistogram perLevel = new LatencyHistogram();
+			for(GameRecord record: this.records) {
+				if(record.level == level) {
+					perLevel.add(record.latency);
+					played++;
+					total += record.score;
+					if(record.won)
+						won++;
+				}
+			}
+			if(played > 0)
+				sb.append("level " + level + ": won " + won + "/" + played + ", mean score " + total / played + ", latency " + perLevel + "\n");
+		}
+		sb.append(String.format("win rate: %.1f%%\n", 100.0 * nbWon / Math.max(1, scores.length)));
+		sb.append(String.format("score: mean %.1f, std dev %.1f, min %d, p25 %d, median %d, p75 %d, max %d\n", mean, Math.sqrt(variance),
+				percentile(scores, 0), percentile(scores, 25), percentile(scores, 50), percentile(scores, 75), percentile(scores, 100)));
+		sb.append(String.format("moves per second: %.1f\n", nbMoves * 1e9 / Math.max(1, this.elapsedTime)));
+		sb.append("latency: " + latency);
+		if(AI.search_stats) {
+			SearchStats stats = new SearchStats();
+			for(GameRecord record: this.records) {
+				record.stats.addTo(stats);
+			}
+			sb.append("\n" + stats);
+		}
+		return sb.toString();
+	}
+
+	// value below which a given percentage of a sorted array lies (nearest rank)
+	private static int percentile(int[] sorted, double percent) {
+		if(sorted.length == 0)
+			return 0;
+		return sorted[Math.max(0, (int)Math.ceil(percent / 100 * sorted.length) - 1)];
+	}
+
+	/**
+	 * run a tournament and print its statistics
+	 * @param args number of games, number of threads, largest number of moves of a game and first seed (default 30, number of processors, 2000, 0)
+	 */
+	public static void main(String[] args) throws InterruptedException, ExecutionException {
+		int nbGames = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+		int nbThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int maxMoves = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+		Tournament tournament = new Tournament(nbGames, nbThreads, maxMoves, seed);
+		tournament.run();
+		System.out.println(tournament.report());
+	}
+}
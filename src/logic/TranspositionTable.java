@@ -0,0 +1,183 @@
+package logic;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Transposition table storing the value of the belief states already searched by the AI.
+ * Entries are indexed by the Zobrist key of the belief state (see BeliefState.getHashKey) and live in fixed size arrays using open addressing,
+ * so the memory used by the table never grows during the search.
+ * Each entry remembers the depth that remained below the belief state when its value was computed, so that the value is only reused for searches which are not deeper.
+ * The table is kept from one move to the next: each entry is also tagged with the generation (the move) in which it was stored,
+ * entries older than a given number of generations are ignored and are the first to be replaced.
+ * The generation only decides when an entry is stale and which entry is replaced, an entry of an older generation is reused on the same terms as a new one.
+ * The table can be shared by several threads: an entry is stored as two longs, the key being xored with the data, so a torn entry is detected and read as a miss.
+ * The table also knows the deepest search among its entries that are not stale, which bounds how far below a belief state a stored value may look.
+ */
+class TranspositionTable {
+
+	/** number of consecutive slots examined to find or replace an entry */
+	private static final int PROBES = 4;
+	/** number of bytes used by one slot */
+	private static final int SLOT_SIZE = 16;
+
+	private final long[] keys;
+	private final long[] data;
+	private final int mask;
+	private final int maxAge;
+	private volatile int generation;
+	private final AtomicIntegerArray deepest; // deepest entry stored or used in each of the generations that are not stale, indexed by generation modulo maxAge + 1
+
+	/**
+	 * construct an empty table
+	 * @param megabytes memory budget of the table in megabytes, the number of slots is the largest power of two fitting in the budget
+	 * @param maxAge number of generations after which an entry that has not been used is stale
+	 */
+	public TranspositionTable(int megabytes, int maxAge) {
+		long slots = Math.max(PROBES, ((long)megabytes << 20) / SLOT_SIZE);
+		int size = Integer.highestOneBit((int)Math.min(slots, 1 << 30));
+		this.keys = new long[size];
+		this.data = new long[size];
+		this.mask = size - 1;
+		this.maxAge = maxAge;
+		this.generation = 0;
+		this.deepest = new AtomicIntegerArray(maxAge + 1);
+	}
+
+	/**
+	 * set the current generation, entries stored or used from now on are tagged with it
+	 * @param generation the current generation (usually the number of the move)
+	 */
+	public void setGeneration(int generation) {
+		generation &= 0xFFFF;
+		if(generation != this.generation)
+			this.deepest.set(generation % this.deepest.length(), 0);
+		this.generation = generation;
+	}
+
+	/**
+	 * return the largest depth of the entries which are not stale, a value read from the table never comes from a deeper search
+	 * @return the largest depth that can be read from the table
+	 */
+	public int maxDepth() {
+		int max = 0;
+		for(int i = 0; i < this.deepest.length(); i++) {
+			max = Math.max(max, this.deepest.get(i));
+		}
+		return max;
+	}
+
+	/**
+	 * return the value stored for a belief state, if it is not stale and was searched at least as deep as requested
+	 * @param key Zobrist key of the belief state
+	 * @param depth depth remaining below the belief state
+	 * @return the stored value, or Float.NaN if there is no usable entry
+	 */
+	public float get(long key, int depth) {
+		int index = this.index(key);
+		for(int i = 0; i < PROBES; i++) {
+			int slot = (index + i) & this.mask;
+			long entry = this.data[slot];
+			if((this.keys[slot] ^ entry) == key && entry != 0) {
+				if(this.isStale(entry) || depthOf(entry) < depth)
+					return Float.NaN;
+				return valueOf(entry);
+			}
+		}
+		return Float.NaN;
+	}
+
+	/**
+	 * store the value of a belief state
+	 * An entry already stored for the same belief state is only replaced by a search at least as deep,
+	 * otherwise the value takes the first empty or stale slot or replaces the shallowest entry when it is not deeper than the new one.
+	 * @param key Zobrist key of the belief state
+	 * @param depth depth remaining below the belief state when the value was computed
+	 * @param value value of the belief state
+	 */
+	public void put(long key, int depth, float value) {
+		int index = this.index(key);
+		int replaced = index;
+		int replacedDepth = Integer.MAX_VALUE;
+		for(int i = 0; i < PROBES; i++) {
+			int slot = (index + i) & this.mask;
+			long entry = this.data[slot];
+			if(entry == 0 || this.isStale(entry)) {
+				if(replacedDepth >= 0) {//first empty or stale slot
+					replaced = slot;
+					replacedDepth = -1;
+				}
+			}
+			else if((this.keys[slot] ^ entry) == key) {//same belief state
+				if(depthOf(entry) > depth)
+					return;
+				replaced = slot;
+				replacedDepth = -1;
+				break;
+			}
+			else if(depthOf(entry) < replacedDepth) {
+				replaced = slot;
+				replacedDepth = depthOf(entry);
+			}
+		}
+		if(replacedDepth > depth)//every slot holds a deeper search
+			return;
+		long entry = pack(depth, value, this.generation);
+		this.data[replaced] = entry;
+		this.keys[replaced] = key ^ entry;
+		this.noteDepth(depth);
+	}
+
+	/**
+	 * remove every entry of the table
+	 */
+	public void clear() {
+		Arrays.fill(this.keys, 0);
+		Arrays.fill(this.data, 0);
+		for(int i = 0; i < this.deepest.length(); i++) {
+			this.deepest.set(i, 0);
+		}
+	}
+
+	/**
+	 * return the number of slots of the table
+	 * @return the number of slots
+	 */
+	public int capacity() {
+		return this.keys.length;
+	}
+
+	private int index(long key) {
+		return (int)(key ^ (key >>> 32)) & this.mask;
+	}
+
+	private void noteDepth(int depth) {
+		this.deepest.accumulateAndGet(this.generation % this.deepest.length(), depth, Math::max);
+	}
+
+	private boolean isStale(long entry) {
+		return this.ageOf(entry) > this.maxAge;
+	}
+
+	// number of generations since an entry was stored
+	private int ageOf(long entry) {
+		return (this.generation - generationOf(entry)) & 0xFFFF;
+	}
+
+	// data of an entry: value in the 32 low bits, depth + 1 in the next 8 bits so that an empty slot is all zeros, generation in the next 16 bits
+	private static long pack(int depth, float value, int generation) {
+		return ((long)generation << 40) | ((long)(depth + 1) << 32) | (Float.floatToRawIntBits(value) & 0xFFFFFFFFL);
+	}
+
+	private static int generationOf(long entry) {
+		return (int)((entry >>> 40) & 0xFFFF);
+	}
+
+	private static int depthOf(long entry) {
+		return (int)((entry >>> 32) & 0xFF) - 1;
+	}
+
+	private static float valueOf(long entry) {
+		return Float.intBitsToFloat((int)entry);
+	}
+}
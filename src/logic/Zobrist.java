@@ -0,0 +1,100 @@
+package logic;
+
+/**
+ * Zobrist keys of the components of a belief state.
+ * The key of a belief state is the xor of the keys of its components, so that it can be updated incrementally each time one of them changes.
+ * Keys are computed by mixing the description of the component instead of being stored in tables, so they do not depend on the size of the level.
+ */
+final class Zobrist {
+
+	private static final long PACMAN = 1, GUM = 2, SUPER_GUM = 3, GHOST = 4, FEAR = 5, STATUS = 6;
+
+	private Zobrist() {
+	}
+
+	/**
+	 * return the key of Pacman being on a given square with a given direction
+	 * @param x row of Pacman
+	 * @param y column of Pacman
+	 * @param dir direction of Pacman ('U', 'D', 'L', 'R')
+	 * @return the key of the position of Pacman
+	 */
+	static long pacman(int x, int y, char dir) {
+		return key(PACMAN, x, y, dir);
+	}
+
+	/**
+	 * return the key of the content of a square, only gums and super gums have a key
+	 * @param x row of the square
+	 * @param y column of the square
+	 * @param content content of the square
+	 * @return the key of the content, 0 if the square holds no gum
+	 */
+	static long gum(int x, int y, char content) {
+		switch(content) {
+		case '.': return key(GUM, x, y, 0);
+		case '*': return key(SUPER_GUM, x, y, 0);
+		default: return 0;
+		}
+	}
+
+	/**
+	 * return the key of one possible position of a ghost
+	 * @param k Id of the ghost
+	 * @param pos possible position of the ghost
+	 * @return the key of the position for this ghost
+	 */
+	static long ghost(int k, Position pos) {
+		return Zobrist.ghost(k, pos.x, pos.y, pos.dir);
+	}
+
+	private static long ghost(int k, int x, int y, char dir) {
+		return key(GHOST + ((long)k << 8), x, y, dir);
+	}
+
+	/**
+	 * return the key of a set of possible positions of a ghost
+	 * @param k Id of the ghost
+	 * @param positions the possible positions of the ghost
+	 * @return the xor of the keys of every position
+	 */
+	static long ghosts(int k, GhostPositions positions) {
+		long hash = 0;
+		for(int index = positions.next(0); index >= 0; index = positions.next(index + 1)) {
+			hash ^= Zobrist.ghost(k, positions.row(index), positions.column(index), positions.direction(index));
+		}
+		return hash;
+	}
+
+	/**
+	 * return the key of the fear counter of a ghost
+	 * @param k Id of the ghost
+	 * @param compteurPeur value of the counter
+	 * @return the key of the counter for this ghost
+	 */
+	static long fear(int k, int compteurPeur) {
+		return key(FEAR, k, compteurPeur, 0);
+	}
+
+	/**
+	 * return the key of the score and of the remaining lifes, which change too often to be part of the incremental key
+	 * @param score the score
+	 * @param life the number of remaining lifes
+	 * @return the key of the score and lifes
+	 */
+	static long status(int score, int life) {
+		return mix((STATUS << 48) ^ ((long)score << 16) ^ (life & 0xFFFF));
+	}
+
+	private static long key(long kind, int a, int b, int c) {
+		return mix((kind << 48) ^ ((long)(a & 0xFFFF) << 32) ^ ((long)(b & 0xFFFF) << 16) ^ (c & 0xFFFF));
+	}
+
+	// splitmix64 finalizer, spreads the description of a component over the 64 bits of its key
+	private static long mix(long z) {
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -4,6 +4,9 @@ import java.awt.*;
 import java.awt.event.*;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 /**
  * Canvas is a class to allow for simple graphical drawing on a canvas.
@@ -18,6 +21,12 @@ import java.util.*;
 public class Canvas
 {
 	public static final int WIDTH = 500, HEIGHT = 500;
+	/** Layers of the image: the walls, rasterized once per level, the gums, updated when one is eaten, and the sprites, drawn at each frame */
+	public static final int MAZE = 0, GUMS = 1, SPRITES = 2;
+	/** Duration of a tick of the game in milliseconds, set with -Dpacman.tickMs */
+	public static final int TICK_MS = Integer.getInteger("pacman.tickMs", 125);
+	// beyond this number of late ticks, the game stops catching up and the late ticks are dropped
+	private static final int MAX_LATE_TICKS = 4;
 
 	// Note: The implementation of this class (specifically the handling of
 	// shape identity and colors) is slightly more complex than necessary. This
@@ -46,11 +55,16 @@ public class Canvas
 	private JMenu menu;
 	private JMenuItem manual, ai;
 	private CanvasPane canvas;
-	private Graphics2D graphic;
 	private Color backgroundColor;
-	private Image canvasImage;
-	private List<Object> objects;
-	private HashMap<Object, ShapeDescription> shapes;
+	private LayeredImage layers; // only drawn by the render thread
+	// state of the frame being built by the game: the sprites, the changes of the static layers and the texts since the last frame
+	private LinkedHashMap<Object, LayeredImage.Sprite> sprites;
+	private List<Consumer<LayeredImage>> statics;
+	private List<Text> texts;
+	// frames waiting for the render thread
+	private LinkedBlockingQueue<Snapshot> snapshots;
+	private long nextTick;
+	private volatile long droppedFrames, lateTicks;
 	private boolean upPressed, downPressed, leftPressed, rightPressed;
 	private boolean isAIdriven;
 
@@ -83,8 +97,10 @@ public class Canvas
 		canvas.setPreferredSize(new Dimension(width, height));
 		backgroundColor = bgColor;
 		frame.pack();
-		objects = new ArrayList<Object>();
-		shapes = new HashMap<Object, ShapeDescription>();
+		sprites = new LinkedHashMap<Object, LayeredImage.Sprite>();
+		statics = new ArrayList<Consumer<LayeredImage>>();
+		texts = new ArrayList<Text>();
+		snapshots = new LinkedBlockingQueue<Snapshot>();
 
 		canvas.addKeyListener(new KeyboardListener());
 		canvas.setFocusable(true);
@@ -146,17 +162,14 @@ public class Canvas
 	}
 
 	/**
-	 * Draws a String on the Canvas.
+	 * Draws a String on the next frame of the Canvas.
 	 * @param  text   the String to be displayed
 	 * @param  x      x co-ordinate for text placement
 	 * @param  y      y co-ordinate for text placement
 	 */
 	public void printString(String text, int x, int y)
 	{
-		graphic.setFont(new Font("Arial", Font.BOLD, 20));
-		graphic.setColor(Color.WHITE);
-		graphic.drawString(text, x, y);
-		canvas.repaint();
+		texts.add(new Text(text, x, y));
 	}
 
 	/**
@@ -168,15 +181,14 @@ public class Canvas
 	 */
 	public void setVisible(boolean visible)
 	{
-		if(graphic == null) {
-			// first time: instantiate the offscreen image and fill it with
+		if(layers == null) {
+			// first time: instantiate the offscreen layers, filled with
 			// the background color
 			Dimension size = canvas.getSize();
-			canvasImage = canvas.createImage(size.width, size.height);
-			graphic = (Graphics2D)canvasImage.getGraphics();
-			graphic.setColor(backgroundColor);
-			graphic.fillRect(0, 0, size.width, size.height);
-			graphic.setColor(Color.black);
+			layers = new LayeredImage(size.width, size.height, backgroundColor);
+			Thread renderer = new Thread(this::render, "render");
+			renderer.setDaemon(true);
+			renderer.start();
 		}
 		frame.setVisible(visible);
 	}
@@ -192,10 +204,27 @@ public class Canvas
 	// in this project clean and simple for educational purposes.
 	public void draw(Object referenceObject, String color, Shape shape)
 	{
-		objects.remove(referenceObject);   // just in case it was already there
-		objects.add(referenceObject);      // add at the end
-		shapes.put(referenceObject, new ShapeDescription(shape, color));
-		//         redraw();
+		draw(referenceObject, color, shape, SPRITES);
+	}
+
+	/**
+	 * Draw a given shape onto a layer of the canvas. The shapes of the MAZE
+	 * and GUMS layers are rasterized at once and stay until clear() is called,
+	 * the shape of an object on the SPRITES layer replaces its previous one.
+	 * @param  referenceObject  an object to define identity for this shape
+	 * @param  color            the color of the shape
+	 * @param  shape            the shape object to be drawn on the canvas
+	 * @param  layer            MAZE, GUMS or SPRITES
+	 */
+	public void draw(Object referenceObject, String color, Shape shape, int layer)
+	{
+		Color c = getColor(color);
+		if(layer == SPRITES) {
+			sprites.remove(referenceObject);   // just in case it was already there
+			sprites.put(referenceObject, new LayeredImage.Sprite(shape, c));      // add at the end
+		}
+		else
+			statics.add(image -> image.drawStatic(layer, c, shape));
 	}
 
 	/**
@@ -204,55 +233,63 @@ public class Canvas
 	 */
 	public void erase(Object referenceObject)
 	{
-		objects.remove(referenceObject);   // just in case it was already there
-		shapes.remove(referenceObject);
-		//         redraw();
+		sprites.remove(referenceObject);
 	}
 
 	/**
-	 * Set the foreground color of the Canvas.
-	 * @param  newColor   the new color for the foreground of the Canvas
+	 * Erase every shape of every layer, before drawing a new level.
 	 */
-	public void setForegroundColor(String colorString)
+	public void clear()
+	{
+		sprites.clear();
+		statics.add(LayeredImage::clear);
+	}
+
+	/**
+	 * Give the color of the name of a color.
+	 * @param  colorString   the name of the color
+	 * @return the color, black for an unknown name
+	 */
+	private static Color getColor(String colorString)
 	{
 		if(colorString.equals("red")) {
-			graphic.setColor(new Color(235, 25, 25));
+			return new Color(235, 25, 25);
 		}
 		else if(colorString.equals("black")) {
-			graphic.setColor(Color.black);
+			return Color.black;
 		}
 		else if(colorString.equals("blue")) {
-			graphic.setColor(new Color(0, 0, 204));
+			return new Color(0, 0, 204);
 		}
 		else if(colorString.equals("violet")) {
-			graphic.setColor(new Color(130, 0, 140));
+			return new Color(130, 0, 140);
 		}
 		else if(colorString.equals("yellow")) {
-			graphic.setColor(new Color(255, 230, 0));
+			return new Color(255, 230, 0);
 		}
 		else if(colorString.equals("green")) {
-			graphic.setColor(new Color(80, 160, 60));
+			return new Color(80, 160, 60);
 		}
 		else if(colorString.equals("pink")) {
-			graphic.setColor(new Color(255, 0, 127));
+			return new Color(255, 0, 127);
 		}
 		else if(colorString.equals("white")) {
-			graphic.setColor(Color.white);
+			return Color.white;
 		}
 		else if(colorString.equals("redG")) {
-			graphic.setColor(new Color(239, 7, 7));
+			return new Color(239, 7, 7);
 		}
 		else if(colorString.equals("blueG")) {
-			graphic.setColor(new Color(102, 254, 255));
+			return new Color(102, 254, 255);
 		}
 		else if(colorString.equals("orangeG")) {
-			graphic.setColor(new Color(250, 156, 0));
+			return new Color(250, 156, 0);
 		}
 		else if(colorString.equals("pinkG")) {
-			graphic.setColor(new Color(255, 152, 153));
+			return new Color(255, 152, 153);
 		}
 		else {
-			graphic.setColor(Color.black);
+			return Color.black;
 		}
 	}
 
@@ -275,31 +312,87 @@ public class Canvas
 	}
 
 	/**
-	 * Redraw all shapes currently on the Canvas.
+	 * Hand a snapshot of the shapes currently on the Canvas to the render
+	 * thread, then wait for the next tick of the game. The ticks are spaced
+	 * by TICK_MS whatever the time spent between them: a late tick does not
+	 * wait, so that the game catches up, unless it is more than
+	 * MAX_LATE_TICKS late, then the missed ticks are dropped.
 	 */
 	public void redraw(int score, int life, String meilleurScore)
 	{
-		erase();
-		for(Object shape : objects) {
-			shapes.get(shape).draw(graphic);
-		}
 		printString("Score : "+score, 10, 20);
 		printString("Vie : "+life, 10, 40);
 		printString("Meilleur score : "+meilleurScore, 240, 20);
-		canvas.repaint();
-		wait(125);
+		snapshots.add(new Snapshot(statics, new ArrayList<LayeredImage.Sprite>(sprites.values()), texts));
+		statics = new ArrayList<Consumer<LayeredImage>>();
+		texts = new ArrayList<Text>();
+
+		long tick = TICK_MS * 1000000L, now = System.nanoTime();
+		if(nextTick == 0 || now - nextTick > MAX_LATE_TICKS * tick) {
+			if(nextTick != 0)
+				lateTicks += (now - nextTick) / tick;
+			nextTick = now;
+		}
+		nextTick += tick;
+		long delay;
+		while((delay = nextTick - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(delay);
+		}
+	}
+
+	/**
+	 * Give the number of frames the render thread skipped because newer ones were waiting.
+	 * @return the number of frames dropped
+	 */
+	public long getDroppedFrames()
+	{
+		return droppedFrames;
 	}
 
 	/**
-	 * Erase the whole canvas. (Does not repaint.)
+	 * Give the number of ticks of the game dropped because it was too late to catch up.
+	 * @return the number of ticks dropped
 	 */
-	private void erase()
+	public long getLateTicks()
 	{
-		Color original = graphic.getColor();
-		graphic.setColor(backgroundColor);
-		Dimension size = canvas.getSize();
-		graphic.fill(new Rectangle(0, 0, size.width, size.height));
-		graphic.setColor(original);
+		return lateTicks;
+	}
+
+	/**
+	 * Loop of the render thread: draw the latest snapshot, after applying the
+	 * changes of the static layers of every snapshot, including the ones of
+	 * the frames skipped because the thread was late.
+	 */
+	private void render()
+	{
+		ArrayList<Snapshot> waiting = new ArrayList<Snapshot>();
+		while(true) {
+			try {
+				waiting.add(snapshots.take());
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			snapshots.drainTo(waiting);
+			droppedFrames += waiting.size() - 1;
+			Snapshot last = waiting.get(waiting.size() - 1);
+			List<Rectangle> changed;
+			synchronized(layers) {
+				for(Snapshot snapshot : waiting) {
+					for(Consumer<LayeredImage> change : snapshot.statics) {
+						change.accept(layers);
+					}
+				}
+				changed = layers.render(last.sprites);
+				for(Text text : last.texts) {
+					changed.add(layers.drawString(text.text, text.x, text.y, new Font("Arial", Font.BOLD, 20), Color.WHITE));
+				}
+			}
+			waiting.clear();
+			for(Rectangle area : changed) {
+				canvas.repaint(area);
+			}
+		}
 	}
 
 	/************************************************************************
@@ -311,30 +404,43 @@ public class Canvas
 	{
 		public void paint(Graphics g)
 		{
-			g.drawImage(canvasImage, 0, 0, null);
+			synchronized(layers) {
+				g.drawImage(layers.getImage(), 0, 0, null);
+			}
 		}
 	}
 
 	/************************************************************************
-	 * Inner class CanvasPane - the actual canvas component contained in the
-	 * Canvas frame. This is essentially a JPanel with added capability to
-	 * refresh the image drawn on it.
+	 * Inner class Snapshot - what the render thread needs to draw a frame,
+	 * never modified once handed to it.
 	 */
-	private class ShapeDescription
+	private static class Snapshot
 	{
-		private Shape shape;
-		private String colorString;
+		private final List<Consumer<LayeredImage>> statics;
+		private final List<LayeredImage.Sprite> sprites;
+		private final List<Text> texts;
 
-		public ShapeDescription(Shape shape, String color)
+		public Snapshot(List<Consumer<LayeredImage>> statics, List<LayeredImage.Sprite> sprites, List<Text> texts)
 		{
-			this.shape = shape;
-			colorString = color;
+			this.statics = statics;
+			this.sprites = sprites;
+			this.texts = texts;
 		}
+	}
+
+	/************************************************************************
+	 * Inner class Text - a String written over a frame.
+	 */
+	private static class Text
+	{
+		private final String text;
+		private final int x, y;
 
-		public void draw(Graphics2D graphic)
+		public Text(String text, int x, int y)
 		{
-			setForegroundColor(colorString);
-			graphic.fill(shape);
+			this.text = text;
+			this.x = x;
+			this.y = y;
 		}
 	}
 
@@ -78,7 +78,7 @@ public class Circle extends Figure
     {
         Canvas canvas = Canvas.getCanvas();
         if(this.isVisible())
-        	canvas.draw(this, getColor(), new Ellipse2D.Double(getX(), getY(), getWidth(), getHeight()));
+        	canvas.draw(this, getColor(), new Ellipse2D.Double(getX(), getY(), getWidth(), getHeight()), getLayer());
     }
 
     /**
@@ -17,6 +17,7 @@ public abstract class Figure
     private int y; // the figure y location in pixels
     private String color = "white"; // the figure color. Valid colors are "white", "black", "red", "yellow", "blue", "green".
     private boolean isVisible;
+    private int layer = Canvas.SPRITES; // the layer of the canvas the figure is drawn on
     
     /**
      * Create a new figure.
@@ -56,6 +57,25 @@ public abstract class Figure
     	this.isVisible = isVisible;
     }
 
+    /**
+     * Give the layer of the canvas the figure is drawn on
+     *
+     * @return Canvas.MAZE, Canvas.GUMS or Canvas.SPRITES
+     */
+    public int getLayer() {
+        return layer;
+    }
+
+    /**
+     * Change the layer of the canvas the figure is drawn on, the figures of the
+     * static layers are drawn once and stay on the canvas until it is cleared
+     *
+     * @param layer Canvas.MAZE, Canvas.GUMS or Canvas.SPRITES
+     */
+    public void setLayer(int layer) {
+        this.layer = layer;
+    }
+
     /**
      * Check whether the figure is inside the canvas
      *
@@ -19,6 +19,7 @@ public class Gomme extends Figure {
     super(size, size, x, y, "black");
     this.figures = new Figure[2];
     this.figures[0] = new Square(size, x, y, Gomme.COLOR_WALK);
+    this.figures[0].setLayer(Canvas.GUMS);
   }
 
   /**
@@ -43,6 +44,7 @@ public class Gomme extends Figure {
     int xg = x+(size/2)-(sg/2);
     int yg = y+(size/2)-(sg/2);
     this.figures[1] = new Circle(sg, xg, yg, Gomme.COLOR_GOM);
+    this.figures[1].setLayer(Canvas.GUMS);
   }
 
   /**
@@ -50,6 +52,9 @@ public class Gomme extends Figure {
    * @param Circle c objet formant une gomme
    */
   public void setGomme (Circle c) {
+    if (c!=null) {
+      c.setLayer(Canvas.GUMS);
+    }
     this.figures[1] = c;
   }
 
@@ -66,8 +71,8 @@ public class Gomme extends Figure {
   }
 
   /**
-   * dessine l'objet case Gomme
-   * Square (fond)
+   * dessine l'objet case Gomme sur la couche des gommes
+   * Square (fond, recouvre la gomme mangee)
    * Circle (gomme si exist)
    */
   public void draw () {
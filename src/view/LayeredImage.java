@@ -0,0 +1,169 @@
+package view;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The image shown by the Canvas, built from layers: the walls of the maze, the gums, and the sprites of Pacman and the ghosts.
+ * The walls and the gums are rasterized once into a background image, which only changes where a static shape is drawn again,
+ * when a gum is eaten. The sprites are drawn again at each frame over the background, after the areas they covered
+ * at the previous frame have been restored from it, so that a frame costs in proportion to the moving entities, not to the size of the map.
+ * The image is only used by the render thread of the Canvas, and by the painting of the window while holding its lock.
+ *
+ * @inv getImage().getWidth() == width && getImage().getHeight() == height
+ */
+class LayeredImage
+{
+	// above this number of areas to restore, they are merged into their bounding box
+	private static final int MAX_AREAS = 32;
+
+	private final int width, height;
+	private final Color backgroundColor;
+	private final BufferedImage maze, gums, background, image;
+	private final Graphics2D mazeGraphic, gumsGraphic, backgroundGraphic, graphic;
+	// areas of the image which differ from the background: covered at the previous frame, or where the background changed
+	private List<Rectangle> dirty;
+
+	/**
+	 * Create the layers of an image.
+	 * @param width   the width of the image
+	 * @param height  the height of the image
+	 * @param backgroundColor  the color under the maze
+	 */
+	LayeredImage(int width, int height, Color backgroundColor)
+	{
+		this.width = width;
+		this.height = height;
+		this.backgroundColor = backgroundColor;
+		maze = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		gums = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		background = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		mazeGraphic = maze.createGraphics();
+		gumsGraphic = gums.createGraphics();
+		backgroundGraphic = background.createGraphics();
+		graphic = image.createGraphics();
+		dirty = new ArrayList<Rectangle>();
+		clear();
+	}
+
+	/**
+	 * Remove every shape of every layer, before the drawing of a new level.
+	 */
+	void clear()
+	{
+		mazeGraphic.setColor(backgroundColor);
+		mazeGraphic.fillRect(0, 0, width, height);
+		gumsGraphic.setComposite(AlphaComposite.Clear);
+		gumsGraphic.fillRect(0, 0, width, height);
+		gumsGraphic.setComposite(AlphaComposite.SrcOver);
+		dirty.clear();
+		addStaticChange(new Rectangle(0, 0, width, height));
+	}
+
+	/**
+	 * Rasterize a shape into the layer of the walls or of the gums.
+	 * @param  layer  Canvas.MAZE or Canvas.GUMS
+	 * @param  color  the color of the shape
+	 * @param  shape  the shape
+	 */
+	void drawStatic(int layer, Color color, Shape shape)
+	{
+		Graphics2D layerGraphic = layer == Canvas.MAZE ? mazeGraphic : gumsGraphic;
+		layerGraphic.setColor(color);
+		layerGraphic.fill(shape);
+		addStaticChange(shape.getBounds());
+	}
+
+	/**
+	 * Draw the next frame: the areas covered at the previous frame are restored from the background, then the sprites are drawn.
+	 * @param  sprites  the sprites of the frame, in drawing order
+	 * @return the areas of the image which changed
+	 */
+	List<Rectangle> render(List<Sprite> sprites)
+	{
+		List<Rectangle> changed = dirty;
+		for(Rectangle area : changed) {
+			graphic.setClip(area);
+			graphic.drawImage(background, 0, 0, null);
+		}
+		graphic.setClip(null);
+		dirty = new ArrayList<Rectangle>();
+		for(Sprite sprite : sprites) {
+			graphic.setColor(sprite.color);
+			graphic.fill(sprite.shape);
+			Rectangle bounds = sprite.shape.getBounds();
+			bounds.grow(1, 1);
+			dirty.add(bounds);
+			changed.add(bounds);
+		}
+		return changed;
+	}
+
+	/**
+	 * Write a text over the current frame, it is erased by the next one.
+	 * @param  text   the text
+	 * @param  x      x co-ordinate of the text
+	 * @param  y      y co-ordinate of the baseline of the text
+	 * @param  font   the font of the text
+	 * @param  color  the color of the text
+	 * @return the area of the text
+	 */
+	Rectangle drawString(String text, int x, int y, Font font, Color color)
+	{
+		graphic.setFont(font);
+		graphic.setColor(color);
+		graphic.drawString(text, x, y);
+		FontMetrics metrics = graphic.getFontMetrics();
+		Rectangle bounds = new Rectangle(x, y - metrics.getAscent(), metrics.stringWidth(text), metrics.getHeight());
+		bounds.grow(1, 1);
+		dirty.add(bounds);
+		return bounds;
+	}
+
+	/**
+	 * Give the image composed by render.
+	 * @return the image
+	 */
+	Image getImage()
+	{
+		return image;
+	}
+
+	// compose the background where a static layer changed, and restore this area at the next frame
+	private void addStaticChange(Rectangle area)
+	{
+		Rectangle bounds = area.intersection(new Rectangle(0, 0, width, height));
+		if(bounds.isEmpty())
+			return;
+		backgroundGraphic.setClip(bounds);
+		backgroundGraphic.drawImage(maze, 0, 0, null);
+		backgroundGraphic.drawImage(gums, 0, 0, null);
+		backgroundGraphic.setClip(null);
+		dirty.add(bounds);
+		if(dirty.size() > MAX_AREAS) {
+			Rectangle union = new Rectangle(dirty.get(0));
+			for(Rectangle other : dirty) {
+				union.add(other);
+			}
+			dirty.clear();
+			dirty.add(union);
+		}
+	}
+
+	/************************************************************************
+	 * Inner class Sprite - a shape drawn at each frame with its color.
+	 */
+	static class Sprite
+	{
+		private final Shape shape;
+		private final Color color;
+
+		Sprite(Shape shape, Color color)
+		{
+			this.shape = shape;
+			this.color = color;
+		}
+	}
+}
@@ -18,9 +18,11 @@ public class MapGenerate {
   }
 
   /**
-   * dessine la map
+   * dessine la map sur les couches statiques du canvas
+   * apres avoir efface celles du niveau precedent
    */
   public void draw () {
+    Canvas.getCanvas().clear();
     for (Figure[] fl : this.theMap) {
       for (Figure f : fl) {
         if (f!=null) {
@@ -71,7 +71,7 @@ public class Square extends Figure
     protected void draw()
     {
         Canvas canvas = Canvas.getCanvas();
-        canvas.draw(this, getColor(), new Rectangle(getX(), getY(), getWidth(), getHeight()));
+        canvas.draw(this, getColor(), new Rectangle(getX(), getY(), getWidth(), getHeight()), getLayer());
     }
 
     /**